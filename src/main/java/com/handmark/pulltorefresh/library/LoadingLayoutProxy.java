@@ -1,18 +1,35 @@
 package com.handmark.pulltorefresh.library;
 
-import java.util.HashSet;
-
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
 
 import com.handmark.pulltorefresh.library.internal.LoadingLayout;
 
+/**
+ * Passes calls on to each of its LoadingLayouts. The layouts are kept in a
+ * plain array, so fanning a call out doesn't allocate. Instances are cached
+ * by {@link PullToRefreshBase} until its Mode changes, so they are cheap to
+ * fetch repeatedly.
+ */
 public class LoadingLayoutProxy implements ILoadingLayout {
 
-	private final HashSet<LoadingLayout> mLoadingLayouts;
+	/**
+	 * Header and footer, plus the ListView's own header and footer
+	 */
+	private static final int INITIAL_CAPACITY = 4;
+
+	private LoadingLayout[] mLoadingLayouts;
+	private int mLoadingLayoutCount;
+
+	/**
+	 * Layouts which haven't been created yet, such as the ListView's own
+	 * header and footer
+	 */
+	private PendingLoadingLayout[] mPendingLayouts;
+	private int mPendingLayoutCount;
 
 	LoadingLayoutProxy() {
-		mLoadingLayouts = new HashSet<LoadingLayout>();
+		mLoadingLayouts = new LoadingLayout[INITIAL_CAPACITY];
 	}
 
 	/**
@@ -25,49 +42,128 @@ public class LoadingLayoutProxy implements ILoadingLayout {
 	 * @param layout - LoadingLayout to have included.
 	 */
 	public void addLayout(LoadingLayout layout) {
-		if (null != layout) {
-			mLoadingLayouts.add(layout);
+		if (null == layout) {
+			return;
 		}
+
+		for (int i = 0; i < mLoadingLayoutCount; i++) {
+			if (mLoadingLayouts[i] == layout) {
+				return;
+			}
+		}
+
+		if (mLoadingLayoutCount == mLoadingLayouts.length) {
+			final LoadingLayout[] layouts = new LoadingLayout[mLoadingLayoutCount * 2];
+			System.arraycopy(mLoadingLayouts, 0, layouts, 0, mLoadingLayoutCount);
+			mLoadingLayouts = layouts;
+		}
+		mLoadingLayouts[mLoadingLayoutCount++] = layout;
+	}
+
+	/**
+	 * Adds a layout which hasn't been created yet. Calls are recorded by
+	 * <var>layout</var>, so that they can be applied once it has been.
+	 */
+	void addPendingLayout(PendingLoadingLayout layout) {
+		if (null == mPendingLayouts) {
+			mPendingLayouts = new PendingLoadingLayout[2];
+		} else if (mPendingLayoutCount == mPendingLayouts.length) {
+			final PendingLoadingLayout[] layouts = new PendingLoadingLayout[mPendingLayoutCount * 2];
+			System.arraycopy(mPendingLayouts, 0, layouts, 0, mPendingLayoutCount);
+			mPendingLayouts = layouts;
+		}
+		mPendingLayouts[mPendingLayoutCount++] = layout;
 	}
 
 	@Override
 	public void setLastUpdatedLabel(CharSequence label) {
-		for (LoadingLayout layout : mLoadingLayouts) {
-			layout.setLastUpdatedLabel(label);
+		for (int i = 0; i < mLoadingLayoutCount; i++) {
+			mLoadingLayouts[i].setLastUpdatedLabel(label);
+		}
+		for (int i = 0; i < mPendingLayoutCount; i++) {
+			mPendingLayouts[i].setLastUpdatedLabel(label);
 		}
 	}
 
 	@Override
 	public void setLoadingDrawable(Drawable drawable) {
-		for (LoadingLayout layout : mLoadingLayouts) {
-			layout.setLoadingDrawable(drawable);
+		for (int i = 0; i < mLoadingLayoutCount; i++) {
+			mLoadingLayouts[i].setLoadingDrawable(drawable);
+		}
+		for (int i = 0; i < mPendingLayoutCount; i++) {
+			mPendingLayouts[i].setLoadingDrawable(drawable);
 		}
 	}
 
 	@Override
 	public void setRefreshingLabel(CharSequence refreshingLabel) {
-		for (LoadingLayout layout : mLoadingLayouts) {
-			layout.setRefreshingLabel(refreshingLabel);
+		for (int i = 0; i < mLoadingLayoutCount; i++) {
+			mLoadingLayouts[i].setRefreshingLabel(refreshingLabel);
+		}
+		for (int i = 0; i < mPendingLayoutCount; i++) {
+			mPendingLayouts[i].setRefreshingLabel(refreshingLabel);
 		}
 	}
 
 	@Override
 	public void setPullLabel(CharSequence label) {
-		for (LoadingLayout layout : mLoadingLayouts) {
-			layout.setPullLabel(label);
+		for (int i = 0; i < mLoadingLayoutCount; i++) {
+			mLoadingLayouts[i].setPullLabel(label);
+		}
+		for (int i = 0; i < mPendingLayoutCount; i++) {
+			mPendingLayouts[i].setPullLabel(label);
 		}
 	}
 
 	@Override
 	public void setReleaseLabel(CharSequence label) {
-		for (LoadingLayout layout : mLoadingLayouts) {
-			layout.setReleaseLabel(label);
+		for (int i = 0; i < mLoadingLayoutCount; i++) {
+			mLoadingLayouts[i].setReleaseLabel(label);
+		}
+		for (int i = 0; i < mPendingLayoutCount; i++) {
+			mPendingLayouts[i].setReleaseLabel(label);
+		}
+	}
+
+	/**
+	 * Sets several labels at once. Each Loading Layout is given all of them in
+	 * a single pass, through {@link LoadingLayout#setLabels}, and requests
+	 * layout at most once for them. Any label which is null is left as it is.
+	 * 
+	 * @param pullLabel - Text to show when the Widget is being Pulled
+	 * @param refreshingLabel - Text to show when the Widget is refreshing
+	 * @param releaseLabel - Text to show when the Widget will refresh when
+	 *            released
+	 * @param lastUpdatedLabel - Text to show as the Last Updated Label
+	 */
+	public void setLabels(CharSequence pullLabel, CharSequence refreshingLabel, CharSequence releaseLabel,
+			CharSequence lastUpdatedLabel) {
+		for (int i = 0; i < mLoadingLayoutCount; i++) {
+			mLoadingLayouts[i].setLabels(pullLabel, refreshingLabel, releaseLabel, lastUpdatedLabel);
+		}
+		for (int i = 0; i < mPendingLayoutCount; i++) {
+			final PendingLoadingLayout layout = mPendingLayouts[i];
+			if (null != pullLabel) {
+				layout.setPullLabel(pullLabel);
+			}
+			if (null != refreshingLabel) {
+				layout.setRefreshingLabel(refreshingLabel);
+			}
+			if (null != releaseLabel) {
+				layout.setReleaseLabel(releaseLabel);
+			}
+			if (null != lastUpdatedLabel) {
+				layout.setLastUpdatedLabel(lastUpdatedLabel);
+			}
 		}
 	}
 
 	public void setTextTypeface(Typeface tf) {
-		for (LoadingLayout layout : mLoadingLayouts) {
-			layout.setTextTypeface(tf);
+		for (int i = 0; i < mLoadingLayoutCount; i++) {
+			mLoadingLayouts[i].setTextTypeface(tf);
+		}
+		for (int i = 0; i < mPendingLayoutCount; i++) {
+			mPendingLayouts[i].setTextTypeface(tf);
 		}
 	}
 }
@@ -16,11 +16,11 @@
 package com.handmark.pulltorefresh.library;
 
 import android.annotation.TargetApi;
-import android.util.Log;
 import android.view.View;
 
-import com.handmark.pulltorefresh.library.PullToRefreshBase.Mode;
+import com.handmark.pulltorefresh.library.PullToRefreshBase.OverScrollStyle;
 import com.handmark.pulltorefresh.library.PullToRefreshBase.State;
+import com.handmark.pulltorefresh.library.internal.EventLog;
 
 @TargetApi(9)
 public final class OverscrollHelper {
@@ -103,71 +103,76 @@ public final class OverscrollHelper {
 			final int deltaY, final int scrollY, final int scrollRange, final int fuzzyThreshold,
 			final float scaleFactor, final boolean isTouchEvent) {
 
-		final int deltaValue, currentScrollValue, scrollValue;
-		switch (view.getPullToRefreshScrollDirection()) {
-			case HORIZONTAL:
-				deltaValue = deltaX;
-				scrollValue = scrollX;
-				currentScrollValue = view.getScrollX();
-				break;
-			case VERTICAL:
-			default:
-				deltaValue = deltaY;
-				scrollValue = scrollY;
-				currentScrollValue = view.getScrollY();
-				break;
-		}
+		final ScrollAxis axis = view.getScrollAxis();
+		final int deltaValue = axis.select(deltaX, deltaY);
+		final int scrollValue = axis.select(scrollX, scrollY);
 
 		// Check that OverScroll is enabled and that we're not currently
 		// refreshing.
 		if (view.isPullToRefreshOverScrollEnabled() && !view.isRefreshing()) {
-			final Mode mode = view.getMode();
 
 			// Check that Pull-to-Refresh is enabled, and the event isn't from
 			// touch
-			if (mode.permitsPullToRefresh() && !isTouchEvent && deltaValue != 0) {
+			if (view.isPullToRefreshEnabled() && !isTouchEvent && deltaValue != 0) {
+				final int currentScrollValue = view.getHeaderScroll();
 				final int newScrollValue = (deltaValue + scrollValue);
 
-				if (PullToRefreshBase.DEBUG) {
-					Log.d(LOG_TAG, "OverScroll. DeltaX: " + deltaX + ", ScrollX: " + scrollX + ", DeltaY: " + deltaY
-							+ ", ScrollY: " + scrollY + ", NewY: " + newScrollValue + ", ScrollRange: " + scrollRange
-							+ ", CurrentScroll: " + currentScrollValue);
+				view.getEventLog().log(EventLog.OVERSCROLL, deltaValue, newScrollValue, scrollRange);
+
+				final int edge = PullMath.getOverScrollEdge(newScrollValue, scrollRange, fuzzyThreshold);
+
+				if (view.getOverScrollStyle() == OverScrollStyle.MOMENTUM) {
+					// The View animates the whole excursion itself, so the rest
+					// of this fling's callbacks are ignored
+					if (currentScrollValue == 0 && State.OVERSCROLLING != view.getState()
+							&& ((edge == PullMath.OVERSCROLL_START && view.isPullFromStartEnabled())
+							|| (edge == PullMath.OVERSCROLL_END && view.isPullFromEndEnabled()))) {
+						view.startOverScrollMomentum(scaleFactor * deltaValue);
+					}
+					return;
 				}
 
-				if (newScrollValue < (0 - fuzzyThreshold)) {
-					// Check the mode supports the overscroll direction, and
-					// then move scroll
-					if (mode.showHeaderLoadingLayout()) {
-						// If we're currently at zero, we're about to start
-						// overscrolling, so change the state
-						if (currentScrollValue == 0) {
-							view.setState(State.OVERSCROLLING);
+				switch (edge) {
+					case PullMath.OVERSCROLL_START:
+						// Check the mode supports the overscroll direction, and
+						// then move scroll
+						if (view.isPullFromStartEnabled()) {
+							// If we're currently at zero, we're about to start
+							// overscrolling, so change the state
+							if (currentScrollValue == 0) {
+								view.setOverScrolling(true);
+							}
+
+							view.setHeaderScroll(PullMath.getOverScroll(PullMath.OVERSCROLL_START, currentScrollValue,
+									newScrollValue, scrollRange, scaleFactor), 0);
 						}
+						break;
 
-						view.setHeaderScroll((int) (scaleFactor * (currentScrollValue + newScrollValue)), 0);
-					}
-				} else if (newScrollValue > (scrollRange + fuzzyThreshold)) {
-					// Check the mode supports the overscroll direction, and
-					// then move scroll
-					if (mode.showFooterLoadingLayout()) {
-						// If we're currently at zero, we're about to start
-						// overscrolling, so change the state
-						if (currentScrollValue == 0) {
-							view.setState(State.OVERSCROLLING);
+					case PullMath.OVERSCROLL_END:
+						// Check the mode supports the overscroll direction, and
+						// then move scroll
+						if (view.isPullFromEndEnabled()) {
+							// If we're currently at zero, we're about to start
+							// overscrolling, so change the state
+							if (currentScrollValue == 0) {
+								view.setOverScrolling(true);
+							}
+
+							view.setHeaderScroll(PullMath.getOverScroll(PullMath.OVERSCROLL_END, currentScrollValue,
+									newScrollValue, scrollRange, scaleFactor), 0);
 						}
+						break;
 
-						view.setHeaderScroll((int) (scaleFactor * (currentScrollValue + newScrollValue - scrollRange)), 0);
-					}
-				} else if (Math.abs(newScrollValue) <= fuzzyThreshold
-						|| Math.abs(newScrollValue - scrollRange) <= fuzzyThreshold) {
-					// Means we've stopped overscrolling, so scroll back to 0
-					view.setState(State.RESET);
+					case PullMath.OVERSCROLL_FINISHED:
+						// Means we've stopped overscrolling, so scroll back to 0
+						view.setOverScrolling(false);
+						break;
 				}
 			} else if (isTouchEvent && State.OVERSCROLLING == view.getState()) {
 				// This condition means that we were overscrolling from a fling,
 				// but the user has touched the View and is now overscrolling
 				// from touch instead. We need to just reset.
-				view.setState(State.RESET);
+				view.setOverScrolling(false);
 			}
 		}
 	}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library;
+
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+
+import com.handmark.pulltorefresh.library.internal.LoadingLayout;
+
+/**
+ * Stands in for a LoadingLayout which hasn't been created yet. The last value
+ * passed to each setter is recorded, and applied to the layout by
+ * {@link #applyTo(LoadingLayout)} once it has been created. From then on
+ * calls are passed straight on, so proxies which still hold this instance
+ * keep working.
+ */
+final class PendingLoadingLayout implements ILoadingLayout {
+
+	private static final int LAST_UPDATED_LABEL = 0x1;
+	private static final int LOADING_DRAWABLE = 0x2;
+	private static final int PULL_LABEL = 0x4;
+	private static final int REFRESHING_LABEL = 0x8;
+	private static final int RELEASE_LABEL = 0x10;
+	private static final int TEXT_TYPEFACE = 0x20;
+
+	private LoadingLayout mLayout;
+	private int mSetValues;
+
+	private CharSequence mLastUpdatedLabel;
+	private Drawable mLoadingDrawable;
+	private CharSequence mPullLabel;
+	private CharSequence mRefreshingLabel;
+	private CharSequence mReleaseLabel;
+	private Typeface mTextTypeface;
+
+	@Override
+	public void setLastUpdatedLabel(CharSequence label) {
+		if (null != mLayout) {
+			mLayout.setLastUpdatedLabel(label);
+		} else {
+			mLastUpdatedLabel = label;
+			mSetValues |= LAST_UPDATED_LABEL;
+		}
+	}
+
+	@Override
+	public void setLoadingDrawable(Drawable drawable) {
+		if (null != mLayout) {
+			mLayout.setLoadingDrawable(drawable);
+		} else {
+			mLoadingDrawable = drawable;
+			mSetValues |= LOADING_DRAWABLE;
+		}
+	}
+
+	@Override
+	public void setPullLabel(CharSequence pullLabel) {
+		if (null != mLayout) {
+			mLayout.setPullLabel(pullLabel);
+		} else {
+			mPullLabel = pullLabel;
+			mSetValues |= PULL_LABEL;
+		}
+	}
+
+	@Override
+	public void setRefreshingLabel(CharSequence refreshingLabel) {
+		if (null != mLayout) {
+			mLayout.setRefreshingLabel(refreshingLabel);
+		} else {
+			mRefreshingLabel = refreshingLabel;
+			mSetValues |= REFRESHING_LABEL;
+		}
+	}
+
+	@Override
+	public void setReleaseLabel(CharSequence releaseLabel) {
+		if (null != mLayout) {
+			mLayout.setReleaseLabel(releaseLabel);
+		} else {
+			mReleaseLabel = releaseLabel;
+			mSetValues |= RELEASE_LABEL;
+		}
+	}
+
+	@Override
+	public void setTextTypeface(Typeface tf) {
+		if (null != mLayout) {
+			mLayout.setTextTypeface(tf);
+		} else {
+			mTextTypeface = tf;
+			mSetValues |= TEXT_TYPEFACE;
+		}
+	}
+
+	/**
+	 * Applies every recorded value to <var>layout</var>, then forgets them.
+	 * Any later calls are passed straight on to <var>layout</var>.
+	 */
+	void applyTo(LoadingLayout layout) {
+		mLayout = layout;
+
+		if ((mSetValues & LOADING_DRAWABLE) != 0) {
+			layout.setLoadingDrawable(mLoadingDrawable);
+		}
+		if ((mSetValues & TEXT_TYPEFACE) != 0) {
+			layout.setTextTypeface(mTextTypeface);
+		}
+		if ((mSetValues & PULL_LABEL) != 0) {
+			layout.setPullLabel(mPullLabel);
+		}
+		if ((mSetValues & REFRESHING_LABEL) != 0) {
+			layout.setRefreshingLabel(mRefreshingLabel);
+		}
+		if ((mSetValues & RELEASE_LABEL) != 0) {
+			layout.setReleaseLabel(mReleaseLabel);
+		}
+		if ((mSetValues & LAST_UPDATED_LABEL) != 0) {
+			layout.setLastUpdatedLabel(mLastUpdatedLabel);
+		}
+
+		mSetValues = 0;
+		mLastUpdatedLabel = null;
+		mLoadingDrawable = null;
+		mPullLabel = null;
+		mRefreshingLabel = null;
+		mReleaseLabel = null;
+		mTextTypeface = null;
+	}
+
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library;
+
+/**
+ * The arithmetic behind pulling, overscrolling and scroll animations. This is
+ * kept free of any Android dependencies so that it can be run, and measured,
+ * on a plain JVM.
+ */
+final class PullMath {
+
+	/**
+	 * Results of {@link #getOverScrollEdge(int, int, int)}.
+	 */
+	static final int OVERSCROLL_NONE = 0;
+	static final int OVERSCROLL_START = 1;
+	static final int OVERSCROLL_END = 2;
+	static final int OVERSCROLL_FINISHED = 3;
+
+	/**
+	 * Resolution of {@link #getNormalizedTime(long, long)}.
+	 */
+	static final int NORMALIZED_TIME_MAX = 1000;
+
+	private PullMath() {
+	}
+
+	/**
+	 * @return The header scroll for a pull from <var>initialMotionValue</var>
+	 *         to <var>lastMotionValue</var>. This is negative when pulling from
+	 *         the start, positive when pulling from the end.
+	 */
+	static int getPullScroll(float initialMotionValue, float lastMotionValue, boolean fromEnd, float friction) {
+		final float delta = initialMotionValue - lastMotionValue;
+		return Math.round((fromEnd ? Math.max(delta, 0) : Math.min(delta, 0)) / friction);
+	}
+
+	/**
+	 * @return <var>value</var> clamped to within <var>max</var> either side of
+	 *         0.
+	 */
+	static int clampScroll(int value, int max) {
+		return Math.min(max, Math.max(-max, value));
+	}
+
+	/**
+	 * @return Which edge a scroll to <var>newScrollValue</var> overscrolls,
+	 *         {@link #OVERSCROLL_FINISHED} if it's back at an edge, or
+	 *         {@link #OVERSCROLL_NONE}.
+	 */
+	static int getOverScrollEdge(int newScrollValue, int scrollRange, int fuzzyThreshold) {
+		if (newScrollValue < (0 - fuzzyThreshold)) {
+			return OVERSCROLL_START;
+		} else if (newScrollValue > (scrollRange + fuzzyThreshold)) {
+			return OVERSCROLL_END;
+		} else if (Math.abs(newScrollValue) <= fuzzyThreshold
+				|| Math.abs(newScrollValue - scrollRange) <= fuzzyThreshold) {
+			return OVERSCROLL_FINISHED;
+		}
+		return OVERSCROLL_NONE;
+	}
+
+	/**
+	 * @return The header scroll to show for an overscroll past <var>edge</var>
+	 *         , which is either {@link #OVERSCROLL_START} or
+	 *         {@link #OVERSCROLL_END}.
+	 */
+	static int getOverScroll(int edge, int currentScrollValue, int newScrollValue, int scrollRange,
+			float scaleFactor) {
+		if (edge == OVERSCROLL_END) {
+			return (int) (scaleFactor * (currentScrollValue + newScrollValue - scrollRange));
+		}
+		return (int) (scaleFactor * (currentScrollValue + newScrollValue));
+	}
+
+	/**
+	 * A critically damped spring starting at rest position with velocity
+	 * <var>v</var> follows x(t) = v * t * e^(-w * t), which peaks at t = 1 / w.
+	 * 
+	 * @return How far the spring moves from its rest position before turning
+	 *         back
+	 */
+	static float getSpringPeak(float velocity, float omega) {
+		return (float) (Math.abs(velocity) / (omega * Math.E));
+	}
+
+	/**
+	 * We do do all calculations in long to reduce software float calculations.
+	 * We use 1000 as it gives us good accuracy and small rounding errors.
+	 * 
+	 * @return How far through the duration <var>elapsedNanos</var> is, from 0
+	 *         to {@link #NORMALIZED_TIME_MAX}
+	 */
+	static long getNormalizedTime(long elapsedNanos, long durationNanos) {
+		final long normalizedTime = (NORMALIZED_TIME_MAX * elapsedNanos) / durationNanos;
+		return Math.max(Math.min(normalizedTime, NORMALIZED_TIME_MAX), 0);
+	}
+
+	/**
+	 * An interpolated scroll which starts while the header is already moving
+	 * towards <var>distance</var> is shortened, so that it doesn't start
+	 * slower than the header was moving. The default DecelerateInterpolator
+	 * starts at twice its average speed, so a duration of 2 * distance /
+	 * velocity carries the velocity on.
+	 * 
+	 * @param distance - How far the scroll moves, in pixels
+	 * @param velocity - Velocity the header is moving at, in pixels per second
+	 * @param duration - Duration to use when the header isn't moving that way
+	 * @param minDuration - Shortest duration to return
+	 * @return Duration of the scroll, in milliseconds
+	 */
+	static long getInterpolatedDuration(int distance, float velocity, long duration, long minDuration) {
+		if (distance == 0 || velocity == 0f || (distance > 0) != (velocity > 0f)) {
+			return duration;
+		}
+		final long carriedDuration = (long) (2000f * distance / velocity);
+		return Math.max(Math.min(carriedDuration, duration), Math.min(minDuration, duration));
+	}
+
+	/**
+	 * @return The scroll value <var>interpolation</var> of the way from
+	 *         <var>fromValue</var> to <var>toValue</var>
+	 */
+	static int getInterpolatedScroll(int fromValue, int toValue, float interpolation) {
+		return fromValue - Math.round((fromValue - toValue) * interpolation);
+	}
+
+}
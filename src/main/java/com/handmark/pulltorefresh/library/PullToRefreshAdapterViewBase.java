@@ -17,8 +17,8 @@ package com.handmark.pulltorefresh.library;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.os.SystemClock;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
@@ -33,6 +33,7 @@ import android.widget.LinearLayout;
 import android.widget.ListAdapter;
 
 import com.handmark.pulltorefresh.library.internal.EmptyViewMethodAccessor;
+import com.handmark.pulltorefresh.library.internal.EventLog;
 import com.handmark.pulltorefresh.library.internal.IndicatorLayout;
 
 public abstract class PullToRefreshAdapterViewBase<T extends AbsListView> extends PullToRefreshBase<T> implements
@@ -54,9 +55,21 @@ public abstract class PullToRefreshAdapterViewBase<T extends AbsListView> extend
 		return newLp;
 	}
 
+	static final int PREFETCH_DEFAULT_ITEM_THRESHOLD = 5;
+	static final int PREFETCH_LOOKAHEAD_MS = 300;
+
 	private boolean mLastItemVisible;
 	private OnScrollListener mOnScrollListener;
 	private OnLastItemVisibleListener mOnLastItemVisibleListener;
+
+	private OnPrefetchListener mOnPrefetchListener;
+	private int mPrefetchItemThreshold = PREFETCH_DEFAULT_ITEM_THRESHOLD;
+	private float mPrefetchViewportFraction = 0f;
+	private boolean mPrefetchInFlight = false;
+	private int mPrefetchItemCount;
+	private int mLastFirstVisibleItem;
+	private long mLastFirstVisibleTime;
+	private float mItemsPerMs;
 	private View mEmptyView;
 
 	private IndicatorLayout mIndicatorIvTop;
@@ -102,10 +115,7 @@ public abstract class PullToRefreshAdapterViewBase<T extends AbsListView> extend
 	public final void onScroll(final AbsListView view, final int firstVisibleItem, final int visibleItemCount,
 			final int totalItemCount) {
 
-		if (DEBUG) {
-			Log.d(LOG_TAG, "First Visible: " + firstVisibleItem + ". Visible Count: " + visibleItemCount
-					+ ". Total Items:" + totalItemCount);
-		}
+		getEventLog().log(EventLog.LIST_SCROLL, firstVisibleItem, visibleItemCount, totalItemCount);
 
 		/**
 		 * Set whether the Last Item is Visible. lastVisibleItemIndex is a
@@ -115,6 +125,10 @@ public abstract class PullToRefreshAdapterViewBase<T extends AbsListView> extend
 			mLastItemVisible = (totalItemCount > 0) && (firstVisibleItem + visibleItemCount >= totalItemCount - 1);
 		}
 
+		if (null != mOnPrefetchListener) {
+			checkPrefetch(firstVisibleItem, visibleItemCount, totalItemCount);
+		}
+
 		// If we're showing the indicator, check positions...
 		if (getShowIndicatorInternal()) {
 			updateIndicatorViewsVisibility();
@@ -135,6 +149,10 @@ public abstract class PullToRefreshAdapterViewBase<T extends AbsListView> extend
 			mOnLastItemVisibleListener.onLastItemVisible();
 		}
 
+		if (state == OnScrollListener.SCROLL_STATE_IDLE) {
+			mItemsPerMs = 0f;
+		}
+
 		if (null != mOnScrollListener) {
 			mOnScrollListener.onScrollStateChanged(view, state);
 		}
@@ -212,6 +230,47 @@ public abstract class PullToRefreshAdapterViewBase<T extends AbsListView> extend
 		mOnLastItemVisibleListener = listener;
 	}
 
+	/**
+	 * Sets a listener which is called when the user has scrolled close to the
+	 * end of the Adapter View, so that the next page can be loaded before they
+	 * get there. See {@link #setPrefetchThreshold(int, float)} for how close.
+	 * <p/>
+	 * Once called, the listener isn't called again until the Adapter's item
+	 * count has changed, or {@link #onPrefetchComplete()} has been called.
+	 * 
+	 * @param listener - OnPrefetchListener to use, or null to remove
+	 */
+	public final void setOnPrefetchListener(OnPrefetchListener listener) {
+		mOnPrefetchListener = listener;
+		mPrefetchInFlight = false;
+	}
+
+	/**
+	 * Sets how close to the end the user needs to be before the
+	 * {@link OnPrefetchListener} is called. The larger of the two thresholds
+	 * is used. While the user is scrolling towards the end, the threshold is
+	 * extended by the number of items they'll scroll past in the next
+	 * {@value #PREFETCH_LOOKAHEAD_MS} ms.
+	 * 
+	 * @param itemThreshold - Number of items from the end. Defaults to
+	 *            {@value #PREFETCH_DEFAULT_ITEM_THRESHOLD}.
+	 * @param viewportFraction - Fraction of the visible item count from the
+	 *            end, or 0 to only use <var>itemThreshold</var>.
+	 */
+	public final void setPrefetchThreshold(int itemThreshold, float viewportFraction) {
+		mPrefetchItemThreshold = Math.max(0, itemThreshold);
+		mPrefetchViewportFraction = Math.max(0f, viewportFraction);
+	}
+
+	/**
+	 * Allows the {@link OnPrefetchListener} to be called again. This only
+	 * needs to be called if the load didn't change the Adapter's item count,
+	 * for instance if it failed.
+	 */
+	public final void onPrefetchComplete() {
+		mPrefetchInFlight = false;
+	}
+
 	public final void setOnScrollListener(OnScrollListener listener) {
 		mOnScrollListener = listener;
 	}
@@ -313,6 +372,39 @@ public abstract class PullToRefreshAdapterViewBase<T extends AbsListView> extend
 		return isLastItemVisible();
 	}
 
+	private void checkPrefetch(final int firstVisibleItem, final int visibleItemCount, final int totalItemCount) {
+		// New items have arrived (or the data has been replaced), so re-arm
+		if (totalItemCount != mPrefetchItemCount) {
+			mPrefetchItemCount = totalItemCount;
+			mPrefetchInFlight = false;
+		}
+
+		// Track how quickly items are scrolling past, for the lookahead
+		if (firstVisibleItem != mLastFirstVisibleItem) {
+			final long now = SystemClock.uptimeMillis();
+			if (mLastFirstVisibleTime > 0 && now > mLastFirstVisibleTime) {
+				mItemsPerMs = (firstVisibleItem - mLastFirstVisibleItem) / (float) (now - mLastFirstVisibleTime);
+			}
+			mLastFirstVisibleItem = firstVisibleItem;
+			mLastFirstVisibleTime = now;
+		}
+
+		if (mPrefetchInFlight || totalItemCount == 0) {
+			return;
+		}
+
+		int threshold = Math.max(mPrefetchItemThreshold, (int) Math.ceil(visibleItemCount * mPrefetchViewportFraction));
+		if (mItemsPerMs > 0f) {
+			threshold += Math.round(mItemsPerMs * PREFETCH_LOOKAHEAD_MS);
+		}
+
+		if (totalItemCount - (firstVisibleItem + visibleItemCount) <= threshold) {
+			getEventLog().log(EventLog.PREFETCH, totalItemCount - firstVisibleItem - visibleItemCount, threshold);
+			mPrefetchInFlight = true;
+			mOnPrefetchListener.onPrefetch();
+		}
+	}
+
 	@Override
 	protected void onScrollChanged(int l, int t, int oldl, int oldt) {
 		super.onScrollChanged(l, t, oldl, oldt);
@@ -376,9 +468,7 @@ public abstract class PullToRefreshAdapterViewBase<T extends AbsListView> extend
 		final Adapter adapter = mRefreshableView.getAdapter();
 
 		if (null == adapter || adapter.isEmpty()) {
-			if (DEBUG) {
-				Log.d(LOG_TAG, "isFirstItemVisible. Empty View.");
-			}
+			getEventLog().log(EventLog.EDGE_CHECK, 1, -1, -1);
 			return true;
 
 		} else {
@@ -405,18 +495,13 @@ public abstract class PullToRefreshAdapterViewBase<T extends AbsListView> extend
 		final Adapter adapter = mRefreshableView.getAdapter();
 
 		if (null == adapter || adapter.isEmpty()) {
-			if (DEBUG) {
-				Log.d(LOG_TAG, "isLastItemVisible. Empty View.");
-			}
+			getEventLog().log(EventLog.EDGE_CHECK, 0, -1, -1);
 			return true;
 		} else {
 			final int lastItemPosition = mRefreshableView.getCount() - 1;
 			final int lastVisiblePosition = mRefreshableView.getLastVisiblePosition();
 
-			if (DEBUG) {
-				Log.d(LOG_TAG, "isLastItemVisible. Last Item Position: " + lastItemPosition + " Last Visible Pos: "
-						+ lastVisiblePosition);
-			}
+			getEventLog().log(EventLog.EDGE_CHECK, 0, lastItemPosition, lastVisiblePosition);
 
 			/**
 			 * This check should really just be: lastVisiblePosition ==
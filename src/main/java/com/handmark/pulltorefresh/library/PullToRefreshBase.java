@@ -15,28 +15,48 @@
  *******************************************************************************/
 package com.handmark.pulltorefresh.library;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.drawable.Drawable;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.os.Parcelable;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.VelocityTracker;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.WindowManager;
 import android.view.animation.DecelerateInterpolator;
 import android.view.animation.Interpolator;
 import android.widget.FrameLayout;
 import android.widget.LinearLayout;
 
+import com.handmark.pulltorefresh.library.RefreshStateMachine.Event;
+import com.handmark.pulltorefresh.library.internal.ArcLoadingLayout;
+import com.handmark.pulltorefresh.library.internal.EventLog;
 import com.handmark.pulltorefresh.library.internal.FlipLoadingLayout;
+import com.handmark.pulltorefresh.library.internal.FrameClock;
 import com.handmark.pulltorefresh.library.internal.LoadingLayout;
+import com.handmark.pulltorefresh.library.internal.LoadingLayoutAttributes;
 import com.handmark.pulltorefresh.library.internal.RotateLoadingLayout;
+import com.handmark.pulltorefresh.library.internal.TraceCompat;
 import com.handmark.pulltorefresh.library.internal.Utils;
 import com.handmark.pulltorefresh.library.internal.ViewCompat;
 
@@ -50,12 +70,20 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 
 	static final boolean USE_HW_LAYERS = false;
 
+	static final int EVENT_LOG_CAPACITY = 256;
+
 	static final String LOG_TAG = "PullToRefresh";
 
+	static final String TRACE_PULL = "PullToRefresh:pull";
+	static final String TRACE_SCROLL_FRAME = "PullToRefresh:scrollFrame";
+	static final String TRACE_REFRESH = "PullToRefresh:onRefresh";
+
 	static final float FRICTION = 2.0f;
 
 	public static final int SMOOTH_SCROLL_DURATION_MS = 200;
 	public static final int SMOOTH_SCROLL_LONG_DURATION_MS = 325;
+	static final int SMOOTH_SCROLL_MIN_DURATION_MS = 50;
+	public static final float SPRING_DEFAULT_STIFFNESS = 300f;
 	static final int DEMO_SCROLL_INTERVAL = 225;
 
 	static final String STATE_STATE = "ptr_state";
@@ -70,14 +98,32 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 	// ===========================================================
 
 	private int mTouchSlop;
+	private int mMaximumFlingVelocity;
+	private int mRefreshFlingVelocity = 0;
+	private VelocityTracker mVelocityTracker;
+	private float mReleaseVelocity;
+	private boolean mTouchPredictionEnabled = false;
+	private float mFrameIntervalMillis;
 	private float mLastMotionX, mLastMotionY;
 	private float mInitialMotionX, mInitialMotionY;
 
 	private boolean mIsBeingDragged = false;
+	private int mLastPullScrollValue = Integer.MIN_VALUE;
+
+	private boolean mNestedScrollingPullEnabled = false;
+	private boolean mNestedScrollInProgress = false;
+	private boolean mNestedPulling = false;
+	private int mNestedPullDistance;
+	private final int[] mParentScrollConsumed = new int[2];
+	private final int[] mParentOffsetInWindow = new int[2];
+	private int mSkippedPullUpdates = 0;
 	protected State mState = State.RESET;
 	private Mode mMode = Mode.getDefault();
 
 	protected Mode mCurrentMode;
+	private boolean mPullFromStartEnabled;
+	private boolean mPullFromEndEnabled;
+	private ScrollAxis mScrollAxis;
 	T mRefreshableView;
 	private FrameLayout mRefreshableViewWrapper;
 
@@ -86,18 +132,127 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 	private boolean mFilterTouchEvents = true;
 	private boolean mOverScrollEnabled = true;
 	private boolean mLayoutVisibilityChangesEnabled = true;
+	private boolean mTranslationScrollingEnabled = false;
+
+	/**
+	 * The current header scroll. This is tracked here, rather than read back
+	 * from getScrollX()/getScrollY(), as it isn't applied as a scroll when
+	 * translation scrolling is enabled.
+	 */
+	private int mHeaderScroll = 0;
 
 	private Interpolator mScrollAnimationInterpolator;
+	private SettleStyle mSettleStyle = SettleStyle.getDefault();
+	private float mSpringStiffness = SPRING_DEFAULT_STIFFNESS;
+	private OverScrollStyle mOverScrollStyle = OverScrollStyle.getDefault();
+	private boolean mOverScrollRefreshEnabled = false;
 	private AnimationStyle mLoadingAnimationStyle = AnimationStyle.getDefault();
+	private final EventLog mEventLog = new EventLog(EVENT_LOG_CAPACITY);
+
+	/**
+	 * Indexed by {@link #getLoadingLayoutProxyIndex(boolean, boolean)}
+	 */
+	private final LoadingLayoutProxy[] mLoadingLayoutProxies = new LoadingLayoutProxy[4];
 
 	protected LoadingLayout mHeaderLayout;
 	private LoadingLayout mFooterLayout;
 
+	/**
+	 * Kept so that the Loading Layouts can be created when they're first
+	 * needed, rather than when the View is.
+	 */
+	private LoadingLayoutAttributes mLoadingLayoutAttributes;
+	private boolean mPrewarmLoadingLayouts = false;
+
+	private final MessageQueue.IdleHandler mPrewarmIdleHandler = new MessageQueue.IdleHandler() {
+		@Override
+		public boolean queueIdle() {
+			onPrewarmLoadingLayouts();
+			return false;
+		}
+	};
+
 	private OnRefreshListener<T> mOnRefreshListener;
 	private OnRefreshListener2<T> mOnRefreshListener2;
 	private OnPullEventListener<T> mOnPullEventListener;
+	private OnPullMetricsListener mOnPullMetricsListener;
+
+	// Uptimes used for the refresh metrics, 0 if not set
+	private long mReleaseTimeMillis = 0;
+	private long mRefreshStartTimeMillis = 0;
+
+	private RefreshTask mRefreshTask;
+	private Executor mRefreshTaskExecutor;
+	private long mRefreshTimeoutMillis = 0;
+	private RefreshTaskRunner mActiveRefresh;
+
+	/**
+	 * RefreshTask results and timeouts are posted here rather than to the
+	 * View. Before Nougat, a Runnable posted to a detached View is dropped,
+	 * which would leave the View refreshing.
+	 */
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+	private final Runnable mRefreshTimeoutRunnable = new Runnable() {
+		@Override
+		public void run() {
+			if (DEBUG) {
+				Log.d(LOG_TAG, "RefreshTask timed out");
+			}
+			cancelRefreshTask();
+			onRefreshComplete();
+		}
+	};
+
+	private final Runnable mRequestLayoutRunnable = new Runnable() {
+		@Override
+		public void run() {
+			requestLayout();
+		}
+	};
+
+	private SmoothScrollAnimator mSmoothScrollAnimator;
+	private FrameClock mDataChangedFrameClock;
+
+	private final RefreshStateMachine mStateMachine = new RefreshStateMachine(new RefreshStateMachine.Callbacks() {
+		@Override
+		public void onStateChanged(int previousState, int newState, boolean doScroll, boolean smoothScroll) {
+			dispatchState(State.fromMachineState(previousState), State.fromMachineState(newState), doScroll,
+					smoothScroll);
+		}
+
+		@Override
+		public void onReleasedWhileRefreshing() {
+			// If we're already refreshing, just scroll back to the top
+			smoothScrollTo(getInitialYOffsetHeader());
+		}
+
+		@Override
+		public void onDataChanged(int state) {
+			onRefreshableViewDataChanged(State.fromMachineState(state));
+		}
+	});
 
-	private SmoothScrollRunnable mCurrentSmoothScrollRunnable;
+	private final OnSmoothScrollFinishedListener mCallRefreshListenerOnScrollFinished = new OnSmoothScrollFinishedListener() {
+		@Override
+		public void onSmoothScrollFinished() {
+			callRefreshListener();
+		}
+	};
+
+	private final OnSmoothScrollFinishedListener mEndOverScrollOnScrollFinished = new OnSmoothScrollFinishedListener() {
+		@Override
+		public void onSmoothScrollFinished() {
+			setOverScrolling(false);
+		}
+	};
+
+	private final OnSmoothScrollFinishedListener mScrollBackOnScrollFinished = new OnSmoothScrollFinishedListener() {
+		@Override
+		public void onSmoothScrollFinished() {
+			smoothScrollTo(0, SMOOTH_SCROLL_DURATION_MS, DEMO_SCROLL_INTERVAL, null);
+		}
+	};
 
 	// ===========================================================
 	// Constructors
@@ -128,14 +283,15 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 
 	@Override
 	public void addView(View child, int index, ViewGroup.LayoutParams params) {
-		if (DEBUG) {
-			Log.d(LOG_TAG, "addView: " + child.getClass().getSimpleName());
-		}
-
 		final T refreshableView = getRefreshableView();
 
 		if (refreshableView instanceof ViewGroup) {
-			((ViewGroup) refreshableView).addView(child, index, params);
+			final ViewGroup refreshableViewGroup = (ViewGroup) refreshableView;
+			refreshableViewGroup.addView(child, index, params);
+
+			if (mEventLog.isLoggable(EventLog.ADD_VIEW)) {
+				mEventLog.log(EventLog.ADD_VIEW, index, child.getId(), refreshableViewGroup.getChildCount());
+			}
 		} else {
 			throw new UnsupportedOperationException("Refreshable View is not a ViewGroup so can't addView");
 		}
@@ -165,13 +321,19 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 	}
 
 	@Override
-	public final ILoadingLayout getLoadingLayoutProxy() {
+	public final LoadingLayoutProxy getLoadingLayoutProxy() {
 		return getLoadingLayoutProxy(true, true);
 	}
 
 	@Override
-	public final ILoadingLayout getLoadingLayoutProxy(boolean includeStart, boolean includeEnd) {
-		return createLoadingLayoutProxy(includeStart, includeEnd);
+	public final LoadingLayoutProxy getLoadingLayoutProxy(boolean includeStart, boolean includeEnd) {
+		final int index = getLoadingLayoutProxyIndex(includeStart, includeEnd);
+		LoadingLayoutProxy proxy = mLoadingLayoutProxies[index];
+		if (null == proxy) {
+			proxy = createLoadingLayoutProxy(includeStart, includeEnd);
+			mLoadingLayoutProxies[index] = proxy;
+		}
+		return proxy;
 	}
 
 	@Override
@@ -212,6 +374,25 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 				&& OverscrollHelper.isAndroidOverScrollEnabled(mRefreshableView);
 	}
 
+	/**
+	 * Returns how many pull updates have been skipped because they wouldn't
+	 * have visibly changed anything. This counts pointer movements which
+	 * didn't change the header scroll, and pull progress updates which the
+	 * Loading Layouts ignored.
+	 * 
+	 * @return The number of skipped updates since this View was created
+	 */
+	public final int getSkippedPullUpdateCount() {
+		int count = mSkippedPullUpdates;
+		if (null != mHeaderLayout) {
+			count += mHeaderLayout.getSkippedPullUpdateCount();
+		}
+		if (null != mFooterLayout) {
+			count += mFooterLayout.getSkippedPullUpdateCount();
+		}
+		return count;
+	}
+
 	@Override
 	public final boolean isRefreshing() {
 		return mState == State.REFRESHING || mState == State.MANUAL_REFRESHING;
@@ -229,10 +410,17 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 			return false;
 		}
 
+		// The Refreshable View is passing us its scrolls, so there's no need
+		// to take over the gesture
+		if (mNestedScrollInProgress && (mScrollingWhileRefreshingEnabled || !isRefreshing())) {
+			return false;
+		}
+
 		final int action = event.getAction();
 
 		if (action == MotionEvent.ACTION_CANCEL || action == MotionEvent.ACTION_UP) {
 			mIsBeingDragged = false;
+			recycleVelocityTracker();
 			return false;
 		}
 
@@ -240,6 +428,10 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 			return true;
 		}
 
+		// Track the pointer before we start dragging, so that the velocity is
+		// correct as soon as we take over the gesture
+		addMovement(event);
+
 		switch (action) {
 			case MotionEvent.ACTION_MOVE: {
 				// If we're refreshing, and the flag is set. Eat all MOVE events
@@ -247,46 +439,39 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 					return true;
 				}
 
-				if (isReadyForPull()) {
-					final float y = event.getY(), x = event.getX();
-					final float diff, oppositeDiff, absDiff;
-
-					// We need to use the correct values, based on scroll
-					// direction
-					switch (getPullToRefreshScrollDirection()) {
-						case HORIZONTAL:
-							diff = x - mLastMotionX;
-							oppositeDiff = y - mLastMotionY;
-							break;
-						case VERTICAL:
-						default:
-							diff = y - mLastMotionY;
-							oppositeDiff = x - mLastMotionX;
-							break;
-					}
-					absDiff = Math.abs(diff);
-
-					if (absDiff > mTouchSlop && (!mFilterTouchEvents || absDiff > Math.abs(oppositeDiff))) {
-						if (mMode.showHeaderLoadingLayout() && diff >= 1f && isReadyForPullStart()) {
-							mLastMotionY = y;
-							mLastMotionX = x;
-							mIsBeingDragged = true;
-							if (mMode == Mode.BOTH) {
-								mCurrentMode = Mode.PULL_FROM_START;
-							}
-						} else if (mMode.showFooterLoadingLayout() && diff <= -1f && isReadyForPullEnd()) {
-							mLastMotionY = y;
-							mLastMotionX = x;
-							mIsBeingDragged = true;
-							if (mMode == Mode.BOTH) {
-								mCurrentMode = Mode.PULL_FROM_END;
-							}
+				final float y = event.getY(), x = event.getX();
+				final float diff = mScrollAxis.select(x - mLastMotionX, y - mLastMotionY);
+				final float absDiff = Math.abs(diff);
+
+				/**
+				 * Check the cheap distance conditions first, and then only ask
+				 * the edge we're actually being pulled from whether it's ready.
+				 */
+				if (absDiff > mTouchSlop
+						&& (!mFilterTouchEvents || absDiff > Math.abs(mScrollAxis.selectOpposite(x - mLastMotionX,
+								y - mLastMotionY)))) {
+					if (mPullFromStartEnabled && diff >= 1f && isReadyForPullStart()) {
+						mLastMotionY = y;
+						mLastMotionX = x;
+						mIsBeingDragged = true;
+						mLastPullScrollValue = Integer.MIN_VALUE;
+						if (mMode == Mode.BOTH) {
+							mCurrentMode = Mode.PULL_FROM_START;
+						}
+					} else if (mPullFromEndEnabled && diff <= -1f && isReadyForPullEnd()) {
+						mLastMotionY = y;
+						mLastMotionX = x;
+						mIsBeingDragged = true;
+						mLastPullScrollValue = Integer.MIN_VALUE;
+						if (mMode == Mode.BOTH) {
+							mCurrentMode = Mode.PULL_FROM_END;
 						}
 					}
 				}
 				break;
 			}
 			case MotionEvent.ACTION_DOWN: {
+				mReleaseVelocity = 0f;
 				if (isReadyForPull()) {
 					mLastMotionY = mInitialMotionY = event.getY();
 					mLastMotionX = mInitialMotionX = event.getX();
@@ -301,9 +486,7 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 
 	@Override
 	public final void onRefreshComplete() {
-		if (isRefreshing()) {
-			setState(State.RESET);
-		}
+		mStateMachine.post(Event.COMPLETE);
 	}
 
 	@Override
@@ -322,12 +505,37 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 			return false;
 		}
 
+		// ACTION_DOWN has already been tracked in onInterceptTouchEvent()
+		if (event.getAction() != MotionEvent.ACTION_DOWN) {
+			addMovement(event);
+		}
+
 		switch (event.getAction()) {
 			case MotionEvent.ACTION_MOVE: {
 				if (mIsBeingDragged) {
-					mLastMotionY = event.getY();
-					mLastMotionX = event.getX();
-					pullEvent();
+					/**
+					 * The event's current position is its newest sample, so
+					 * already includes any batched historical samples. Those
+					 * have been fed to the VelocityTracker above, which lets us
+					 * predict where the pointer will be by the next frame.
+					 */
+					if (mTouchPredictionEnabled) {
+						predictMotion(event);
+					} else {
+						mLastMotionY = event.getY();
+						mLastMotionX = event.getX();
+					}
+					final OnPullMetricsListener metrics = mOnPullMetricsListener;
+					if (null != metrics) {
+						TraceCompat.beginSection(TRACE_PULL);
+						final boolean moved = pullEvent();
+						TraceCompat.endSection();
+						if (moved) {
+							metrics.onPullMoved(SystemClock.uptimeMillis() - event.getEventTime());
+						}
+					} else {
+						pullEvent();
+					}
 					return true;
 				}
 				break;
@@ -344,25 +552,12 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 
 			case MotionEvent.ACTION_CANCEL:
 			case MotionEvent.ACTION_UP: {
+				final float pullVelocity = computePullVelocity();
+				recycleVelocityTracker();
+
 				if (mIsBeingDragged) {
 					mIsBeingDragged = false;
-
-					if (mState == State.RELEASE_TO_REFRESH
-							&& (null != mOnRefreshListener || null != mOnRefreshListener2)) {
-						setState(State.REFRESHING, true, true);
-						return true;
-					}
-
-					// If we're already refreshing, just scroll back to the top
-					if (isRefreshing()) {
-						smoothScrollTo(getInitialYOffsetHeader());
-						return true;
-					}
-
-					// If we haven't returned by here, then we're not in a state
-					// to pull, so just reset
-					setState(State.RESET);
-
+					releasePull(pullVelocity);
 					return true;
 				}
 				break;
@@ -372,6 +567,134 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		return false;
 	}
 
+	// ===========================================================
+	// Nested scrolling, only called from LOLLIPOP onwards
+	// ===========================================================
+
+	@Override
+	public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+		return mNestedScrollingPullEnabled && isPullToRefreshEnabled() && (nestedScrollAxes & getNestedScrollAxis()) != 0;
+	}
+
+	@TargetApi(21)
+	@Override
+	public void onNestedScrollAccepted(View child, View target, int axes) {
+		super.onNestedScrollAccepted(child, target, axes);
+
+		// Pass the scroll on to any parent which is interested
+		startNestedScroll(axes & getNestedScrollAxis());
+
+		mNestedScrollInProgress = true;
+		mNestedPulling = false;
+		mNestedPullDistance = 0;
+	}
+
+	@TargetApi(21)
+	@Override
+	public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+		final int axisIndex = mScrollAxis.select(0, 1);
+		final int delta = mScrollAxis.select(dx, dy);
+
+		// If the header has been pulled out, scrolling back the other way
+		// retracts it before the Refreshable View scrolls again
+		int headerConsumed = 0;
+		if (mNestedPullDistance < 0 && delta > 0) {
+			headerConsumed = Math.min(delta, -mNestedPullDistance);
+		} else if (mNestedPullDistance > 0 && delta < 0) {
+			headerConsumed = Math.max(delta, -mNestedPullDistance);
+		}
+
+		if (headerConsumed != 0) {
+			mNestedPullDistance += headerConsumed;
+			consumed[axisIndex] = headerConsumed;
+			nestedPull();
+		}
+
+		final int[] parentConsumed = mParentScrollConsumed;
+		parentConsumed[0] = parentConsumed[1] = 0;
+		if (dispatchNestedPreScroll(dx - consumed[0], dy - consumed[1], parentConsumed, null)) {
+			consumed[0] += parentConsumed[0];
+			consumed[1] += parentConsumed[1];
+		}
+	}
+
+	@TargetApi(21)
+	@Override
+	public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+		// Give our parent the first go at what's left, then pull with the rest.
+		// Anything it used moves us in the window.
+		final int[] offsetInWindow = mParentOffsetInWindow;
+		offsetInWindow[0] = offsetInWindow[1] = 0;
+		dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow);
+
+		final int delta = mScrollAxis.select(dxUnconsumed + offsetInWindow[0], dyUnconsumed + offsetInWindow[1]);
+		if (delta == 0 || (!mScrollingWhileRefreshingEnabled && isRefreshing())) {
+			return;
+		}
+
+		if (mNestedPullDistance == 0) {
+			if (delta < 0 && mPullFromStartEnabled) {
+				mCurrentMode = Mode.PULL_FROM_START;
+			} else if (delta > 0 && mPullFromEndEnabled) {
+				mCurrentMode = Mode.PULL_FROM_END;
+			} else {
+				return;
+			}
+			mNestedPulling = true;
+			mLastPullScrollValue = Integer.MIN_VALUE;
+		} else if ((delta < 0) != (mNestedPullDistance < 0)) {
+			// Only pull further in the direction we're already pulling
+			return;
+		}
+
+		mNestedPullDistance += delta;
+		nestedPull();
+	}
+
+	@TargetApi(21)
+	@Override
+	public void onStopNestedScroll(View target) {
+		super.onStopNestedScroll(target);
+		mNestedScrollInProgress = false;
+
+		if (mNestedPulling) {
+			mNestedPulling = false;
+			mNestedPullDistance = 0;
+			releasePull(0f);
+		}
+
+		stopNestedScroll();
+	}
+
+	@TargetApi(21)
+	@Override
+	public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+		// Don't let the Refreshable View fling while the header is out
+		return mNestedPulling || dispatchNestedPreFling(velocityX, velocityY);
+	}
+
+	@TargetApi(21)
+	@Override
+	public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+		return dispatchNestedFling(velocityX, velocityY, consumed);
+	}
+
+	/**
+	 * Allows the header to be pulled by nested scrolls from the Refreshable
+	 * View, rather than by intercepting its touch events. The Refreshable
+	 * View's scrolls are also passed on to any nested scrolling parent of this
+	 * View, such as a collapsing toolbar. Only has an effect on LOLLIPOP and
+	 * later, with a Refreshable View which supports nested scrolling. Disabled
+	 * by default.
+	 * 
+	 * @param enabled - true to pull the header with nested scrolls
+	 */
+	public final void setNestedScrollingPullEnabled(boolean enabled) {
+		mNestedScrollingPullEnabled = enabled;
+		ViewCompat.setNestedScrollingEnabled(this, enabled);
+		ViewCompat.setNestedScrollingEnabled(mRefreshableView, enabled);
+	}
+
 	public final void setScrollingWhileRefreshingEnabled(boolean allowScrollingWhileRefreshing) {
 		mScrollingWhileRefreshingEnabled = allowScrollingWhileRefreshing;
 	}
@@ -421,9 +744,7 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 	@Override
 	public final void setMode(Mode mode) {
 		if (mode != mMode) {
-			if (DEBUG) {
-				Log.d(LOG_TAG, "Setting mode to: " + mode);
-			}
+			mEventLog.log(EventLog.MODE, mode.getIntValue());
 			mMode = mode;
 			updateUIForMode();
 		}
@@ -433,6 +754,18 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		mOnPullEventListener = listener;
 	}
 
+	/**
+	 * Set a listener which is given performance metrics about pulls, header
+	 * scroll animations and refreshes. While a listener is set, the pull and
+	 * animation work is also emitted as systrace sections.
+	 * 
+	 * @param listener - Listener to be given metrics, or null to stop
+	 *            collecting them.
+	 */
+	public final void setOnPullMetricsListener(OnPullMetricsListener listener) {
+		mOnPullMetricsListener = listener;
+	}
+
 	@Override
 	public final void setOnRefreshListener(OnRefreshListener<T> listener) {
 		mOnRefreshListener = listener;
@@ -475,6 +808,84 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		mOverScrollEnabled = enabled;
 	}
 
+	/**
+	 * Enables pointer prediction while pulling. When enabled the header is
+	 * positioned where the pointer is predicted to be when the next frame is
+	 * displayed, based on the pointer's velocity across all of the samples in
+	 * each touch event. This makes the header track the finger more closely on
+	 * high sample rate touch screens. Disabled by default.
+	 * 
+	 * @param enabled - true to enable touch prediction
+	 */
+	public final void setTouchPredictionEnabled(boolean enabled) {
+		mTouchPredictionEnabled = enabled;
+
+		if (enabled) {
+			getFrameIntervalMillis();
+		}
+	}
+
+	/**
+	 * @return The display's frame interval, which is looked up the first time
+	 *         it's needed.
+	 */
+	private float getFrameIntervalMillis() {
+		if (mFrameIntervalMillis == 0f) {
+			float refreshRate = 60f;
+			WindowManager wm = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+			if (null != wm && wm.getDefaultDisplay().getRefreshRate() > 0f) {
+				refreshRate = wm.getDefaultDisplay().getRefreshRate();
+			}
+			mFrameIntervalMillis = 1000f / refreshRate;
+		}
+		return mFrameIntervalMillis;
+	}
+
+	/**
+	 * Allows a fast, short pull to trigger a refresh, even if the user hasn't
+	 * pulled past the Loading Layout. When the pull is released while moving
+	 * towards the edge at least this fast, the View refreshes. Disabled by
+	 * default.
+	 * 
+	 * @param pixelsPerSecond - Minimum pointer velocity which triggers a
+	 *            refresh, or 0 to disable.
+	 */
+	public final void setRefreshFlingVelocity(int pixelsPerSecond) {
+		mRefreshFlingVelocity = Math.max(0, pixelsPerSecond);
+	}
+
+	/**
+	 * Sets a RefreshTask which is run on <var>executor</var> whenever the View
+	 * refreshes. This is run as well as any OnRefreshListener which has been
+	 * set. Once the task has finished, the View's refresh is completed
+	 * automatically, so there is no need to call {@link #onRefreshComplete()}.
+	 * <p/>
+	 * Only one task runs at a time, as the View can't refresh again until the
+	 * running task has completed. A running task is cancelled if the View is
+	 * reset, or detached from its Window.
+	 * 
+	 * @param task - RefreshTask to run, or null to remove the current one
+	 * @param executor - Executor to run the task on
+	 */
+	public final void setRefreshTask(RefreshTask task, Executor executor) {
+		if (null != task && null == executor) {
+			throw new IllegalArgumentException("A RefreshTask needs an Executor to run on");
+		}
+		cancelRefreshTask();
+		mRefreshTask = task;
+		mRefreshTaskExecutor = executor;
+	}
+
+	/**
+	 * Sets how long a RefreshTask may run for. If it hasn't finished by then it
+	 * is cancelled, and the View's refresh is completed. Disabled by default.
+	 * 
+	 * @param timeoutMillis - Timeout in milliseconds, or 0 to disable.
+	 */
+	public final void setRefreshTimeout(long timeoutMillis) {
+		mRefreshTimeoutMillis = Math.max(0, timeoutMillis);
+	}
+
 	@Override
 	public void setRefreshing() {
 		setRefreshing(true, true);
@@ -483,9 +894,14 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 	@Override
 	public void setRefreshing(boolean doScroll,
                               boolean smoothScroll) {
-		if (!isRefreshing()) {
-			setState(State.MANUAL_REFRESHING, doScroll, smoothScroll);
+		int flags = 0;
+		if (doScroll) {
+			flags |= RefreshStateMachine.FLAG_DO_SCROLL;
+		}
+		if (smoothScroll) {
+			flags |= RefreshStateMachine.FLAG_SMOOTH_SCROLL;
 		}
+		mStateMachine.post(Event.MANUAL_REFRESH, flags);
 	}
 
 	/**
@@ -526,26 +942,230 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		mScrollAnimationInterpolator = interpolator;
 	}
 
+	/**
+	 * Sets how animated scrolls settle. {@link SettleStyle#INTERPOLATED} (the
+	 * default) uses the Interpolator given to
+	 * {@link #setScrollAnimationInterpolator(Interpolator)} over a fixed
+	 * duration. If the header is already moving towards where it's scrolling
+	 * to, such as after a fling, the duration is shortened so the scroll
+	 * keeps up with it. {@link SettleStyle#SPRING} ignores the duration,
+	 * carries on from the velocity the header is already moving at, and stops
+	 * as soon as it has come to rest.
+	 * <p/>
+	 * The excursion started by a fling with {@link OverScrollStyle#MOMENTUM}
+	 * is always driven by a spring, whichever style is set here.
+	 * 
+	 * @param style - SettleStyle to use
+	 */
+	public final void setScrollSettleStyle(SettleStyle style) {
+		mSettleStyle = null != style ? style : SettleStyle.getDefault();
+	}
+
+	/**
+	 * Starts or stops recording debug events, such as state changes and
+	 * scroll values, into a fixed size in-memory log. Recording doesn't
+	 * allocate, and when set to {@link EventLogLevel#OFF} (the default) each
+	 * event costs a single comparison. Use {@link #dumpEventLog()} to see the
+	 * events.
+	 * 
+	 * @param level - Which events to record
+	 */
+	public final void setEventLogLevel(EventLogLevel level) {
+		mEventLog.setLevel(null != level ? level.getLogLevel() : EventLog.LEVEL_OFF);
+	}
+
+	/**
+	 * Writes the events recorded since {@link #setEventLogLevel(EventLogLevel)
+	 * setEventLogLevel()} was called to logcat, oldest first.
+	 */
+	public final void dumpEventLog() {
+		mEventLog.dump(LOG_TAG);
+	}
+
+	/**
+	 * Sets how the header reacts to a fling overscrolling the Refreshable
+	 * View. Defaults to {@link OverScrollStyle#FOLLOW}.
+	 * 
+	 * @param style - OverScrollStyle to use
+	 */
+	public final void setOverScrollStyle(OverScrollStyle style) {
+		mOverScrollStyle = null != style ? style : OverScrollStyle.getDefault();
+	}
+
+	/**
+	 * When the overscroll style is {@link OverScrollStyle#MOMENTUM}, allows a
+	 * fling which would carry the header past the Loading Layout to start a
+	 * refresh. Disabled by default.
+	 * 
+	 * @param enabled - true to refresh from hard enough flings
+	 */
+	public final void setOverScrollRefreshEnabled(boolean enabled) {
+		mOverScrollRefreshEnabled = enabled;
+	}
+
+	/**
+	 * Sets the stiffness of the spring used when the settle style is
+	 * {@link SettleStyle#SPRING}. Higher values settle faster. The spring is
+	 * always critically damped, so it never overshoots its target. Defaults
+	 * to {@value #SPRING_DEFAULT_STIFFNESS}.
+	 * 
+	 * @param stiffness - Spring stiffness, must be greater than 0
+	 */
+	public final void setSpringStiffness(float stiffness) {
+		if (stiffness <= 0f) {
+			throw new IllegalArgumentException("Spring stiffness must be greater than 0");
+		}
+		mSpringStiffness = stiffness;
+	}
+
 	@Override
 	public final void setShowViewWhileRefreshing(boolean showView) {
 		mShowViewWhileRefreshing = showView;
 	}
 
+	/**
+	 * By default the header is moved by scrolling this whole View, which
+	 * invalidates everything it contains on every change. When this is
+	 * enabled, the header is moved by setting the translation of the Loading
+	 * Layouts and the Refreshable View's wrapper instead. Their display lists
+	 * are then reused as they are, so no hardware layer needs to be created
+	 * or destroyed during a pull. Only has an effect on HONEYCOMB and later.
+	 * Disabled by default.
+	 * 
+	 * @param enabled - true to move the header using translations
+	 */
+	public final void setTranslationScrollingEnabled(boolean enabled) {
+		enabled &= VERSION.SDK_INT >= VERSION_CODES.HONEYCOMB;
+		if (enabled != mTranslationScrollingEnabled) {
+			// Undo the current scroll, then re-apply it using the new method
+			applyHeaderScroll(0);
+			mTranslationScrollingEnabled = enabled;
+			applyHeaderScroll(mHeaderScroll);
+		}
+	}
+
+	/**
+	 * The header and footer Loading Layouts which the Mode shows are created
+	 * along with the View, but derivative classes may create extra ones only
+	 * once they're first needed, such as the ListView's own header and footer.
+	 * When this is enabled, those are created once the UI thread is idle after
+	 * the View has been attached, so that creating them doesn't hold up the
+	 * first refresh. Disabled by default.
+	 * 
+	 * @param prewarm - true to create Loading Layouts during idle time
+	 */
+	public final void setPrewarmLoadingLayoutsEnabled(boolean prewarm) {
+		mPrewarmLoadingLayouts = prewarm;
+		Looper.myQueue().removeIdleHandler(mPrewarmIdleHandler);
+		if (prewarm && null != getWindowToken()) {
+			Looper.myQueue().addIdleHandler(mPrewarmIdleHandler);
+		}
+	}
+
 	/**
 	 * @return Either {@link Orientation#VERTICAL} or
 	 *         {@link Orientation#HORIZONTAL} depending on the scroll direction.
 	 */
 	public abstract Orientation getPullToRefreshScrollDirection();
 
-	final void setState(State state, final boolean... params) {
-		mState = state;
-		if (DEBUG) {
-			Log.d(LOG_TAG, "State: " + mState.name());
+	/**
+	 * Moves the View to <var>state</var>. When moving to one of the refreshing
+	 * states, the View scrolls smoothly to show the Refreshing view.
+	 */
+	final void setState(State state) {
+		setState(state, true, true);
+	}
+
+	/**
+	 * Moves the View to <var>state</var>.
+	 * <p/>
+	 * Transitions are checked against
+	 * {@link RefreshStateMachine#canTransition(int, int)}, and ignored if they're not allowed. If this is called while a previous
+	 * transition is still being dispatched (for instance by a listener calling
+	 * {@link #onRefreshComplete()} from within onRefresh), the new transition
+	 * is run once the previous one has completely finished.
+	 * 
+	 * @param doScroll - Only used for the refreshing states. Whether the UI
+	 *            should scroll to show the Refreshing view.
+	 * @param smoothScroll - Only used for the refreshing states. Whether that
+	 *            scroll should be animated.
+	 */
+	final void setState(State state, boolean doScroll, boolean smoothScroll) {
+		mStateMachine.post(Event.TRANSITION, RefreshStateMachine.transitionArg(state.getMachineState(), doScroll,
+				smoothScroll));
+	}
+
+	/**
+	 * Notifies the View that a fling on the Refreshable View has started or
+	 * stopped overscrolling.
+	 */
+	final void setOverScrolling(boolean overScrolling) {
+		mStateMachine.post(Event.OVERSCROLL, overScrolling ? 1 : 0);
+	}
+
+	/**
+	 * @return true if a touch gesture is currently pulling the View
+	 */
+	final boolean isBeingDragged() {
+		return mIsBeingDragged;
+	}
+
+	final EventLog getEventLog() {
+		return mEventLog;
+	}
+
+	final OverScrollStyle getOverScrollStyle() {
+		return mOverScrollStyle;
+	}
+
+	/**
+	 * Used with {@link OverScrollStyle#MOMENTUM}. Turns what's left of a
+	 * fling which has just overscrolled into a spring driven excursion of the
+	 * header, or a refresh if it would carry the header past the Loading
+	 * Layout. The excursion is always a spring, as it has no fixed target to
+	 * interpolate to. The scroll to the refreshing position follows the
+	 * settle style, and is shortened by the fling's velocity when
+	 * interpolated.
+	 * 
+	 * @param delta - How far the fling overscrolled in its last frame, which
+	 *            gives its velocity. Negative at the start, positive at the
+	 *            end.
+	 */
+	final void startOverScrollMomentum(float delta) {
+		final float velocity = delta * 1000f / getFrameIntervalMillis();
+		final boolean fromEnd = delta > 0;
+		if (mMode == Mode.BOTH) {
+			mCurrentMode = fromEnd ? Mode.PULL_FROM_END : Mode.PULL_FROM_START;
+		}
+
+		final float omega = (float) Math.sqrt(mSpringStiffness);
+		final int itemDimension = fromEnd ? getFooterSize() : getHeaderSize();
+		if (mOverScrollRefreshEnabled && isRefreshAllowed()
+				&& PullMath.getSpringPeak(velocity, omega) >= itemDimension) {
+			// The scroll to the refreshing position carries on at the fling's
+			// velocity
+			mReleaseVelocity = velocity;
+			mStateMachine.post(Event.OVERSCROLL, RefreshStateMachine.OVERSCROLL_REFRESH);
+			return;
 		}
 
+		setOverScrolling(true);
+		if (null == mSmoothScrollAnimator) {
+			mSmoothScrollAnimator = new SmoothScrollAnimator();
+		}
+		mSmoothScrollAnimator.startSpring(mHeaderScroll, 0, velocity, mSpringStiffness, 0,
+				mEndOverScrollOnScrollFinished);
+	}
+
+	private void dispatchState(State previousState, State state, boolean doScroll, boolean smoothScroll) {
+		mState = state;
+		mEventLog.log(EventLog.STATE, state.ordinal());
+
 		switch (mState) {
 			case RESET:
+				cancelRefreshTask();
 				onReset();
+				reportRefreshCompleted();
 				break;
 			case PULL_TO_REFRESH:
 				onPullToRefresh();
@@ -555,14 +1175,15 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 				break;
 			case REFRESHING:
 			case MANUAL_REFRESHING:
-				onRefreshing(params[0],
-                             params[1]);
+				onRefreshing(doScroll, smoothScroll);
 				break;
 			case OVERSCROLLING:
 				// NO-OP
 				break;
 		}
 
+		onStateChanged(previousState, mState);
+
 		// Call OnPullEventListener
 		if (null != mOnPullEventListener) {
 			mOnPullEventListener.onPullEvent(this, mState, mCurrentMode);
@@ -585,25 +1206,36 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		super.addView(child, -1, params);
 	}
 
-	protected LoadingLayout createLoadingLayout(Context context, Mode mode, TypedArray attrs) {
+	protected LoadingLayout createLoadingLayout(Context context, Mode mode, LoadingLayoutAttributes attrs) {
 		LoadingLayout layout = mLoadingAnimationStyle.createLoadingLayout(context, mode,
 				getPullToRefreshScrollDirection(), attrs);
 		layout.setVisibility(View.INVISIBLE);
 		return layout;
 	}
 
+	/**
+	 * Creates a new Loading Layout using the View's XML attributes. Derivative
+	 * classes can use this to create extra Loading Layouts once they're
+	 * needed.
+	 */
+	protected final LoadingLayout createLoadingLayout(Mode mode) {
+		return createLoadingLayout(getContext(), mode, mLoadingLayoutAttributes);
+	}
+
 	/**
 	 * Used internally for {@link #getLoadingLayoutProxy(boolean, boolean)}.
-	 * Allows derivative classes to include any extra LoadingLayouts.
+	 * Allows derivative classes to include any extra LoadingLayouts. The
+	 * result is cached until {@link #invalidateLoadingLayoutProxies()} is
+	 * called.
 	 */
 	protected LoadingLayoutProxy createLoadingLayoutProxy(final boolean includeStart, final boolean includeEnd) {
 		LoadingLayoutProxy proxy = new LoadingLayoutProxy();
 
 		if (includeStart && mMode.showHeaderLoadingLayout()) {
-			proxy.addLayout(mHeaderLayout);
+			proxy.addLayout(getHeaderLayout());
 		}
 		if (includeEnd && mMode.showFooterLoadingLayout()) {
-			proxy.addLayout(mFooterLayout);
+			proxy.addLayout(getFooterLayout());
 		}
 
 		return proxy;
@@ -629,20 +1261,34 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		mLayoutVisibilityChangesEnabled = false;
 	}
 
+	/**
+	 * @return The Footer Loading Layout, which is created if it hasn't been
+	 *         needed until now.
+	 */
 	protected final LoadingLayout getFooterLayout() {
+		if (null == mFooterLayout) {
+			mFooterLayout = createLoadingLayout(Mode.PULL_FROM_END);
+		}
 		return mFooterLayout;
 	}
 
 	protected final int getFooterSize() {
-		return mFooterLayout.getContentSize();
+		return getFooterLayout().getContentSize();
 	}
 
+	/**
+	 * @return The Header Loading Layout, which is created if it hasn't been
+	 *         needed until now.
+	 */
 	protected final LoadingLayout getHeaderLayout() {
+		if (null == mHeaderLayout) {
+			mHeaderLayout = createLoadingLayout(Mode.PULL_FROM_START);
+		}
 		return mHeaderLayout;
 	}
 
 	protected final int getHeaderSize() {
-		return mHeaderLayout.getContentSize();
+		return getHeaderLayout().getContentSize();
 	}
 
 	protected int getPullToRefreshScrollDuration() {
@@ -657,6 +1303,18 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		return mRefreshableViewWrapper;
 	}
 
+	final ScrollAxis getScrollAxis() {
+		return mScrollAxis;
+	}
+
+	final boolean isPullFromStartEnabled() {
+		return mPullFromStartEnabled;
+	}
+
+	final boolean isPullFromEndEnabled() {
+		return mPullFromEndEnabled;
+	}
+
 	/**
 	 * Allows Derivative classes to handle the XML Attrs without creating a
 	 * TypedArray themsevles
@@ -709,10 +1367,10 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 	protected void onPullToRefresh() {
 		switch (mCurrentMode) {
 			case PULL_FROM_END:
-				mFooterLayout.pullToRefresh();
+				getFooterLayout().pullToRefresh();
 				break;
 			case PULL_FROM_START:
-				mHeaderLayout.pullToRefresh();
+				getHeaderLayout().pullToRefresh();
 				break;
 			default:
 				// NO-OP
@@ -729,22 +1387,17 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 	protected void onRefreshing(final boolean doScroll,
                                 final boolean smoothScroll) {
 		if (mMode.showHeaderLoadingLayout()) {
-			mHeaderLayout.refreshing();
+			getHeaderLayout().refreshing();
 		}
 		if (mMode.showFooterLoadingLayout()) {
-			mFooterLayout.refreshing();
+			getFooterLayout().refreshing();
 		}
 
 		if (doScroll) {
 			if (mShowViewWhileRefreshing) {
 
 				// Call Refresh Listener when the Scroll has finished
-				OnSmoothScrollFinishedListener listener = new OnSmoothScrollFinishedListener() {
-					@Override
-					public void onSmoothScrollFinished() {
-						callRefreshListener();
-					}
-				};
+				final OnSmoothScrollFinishedListener listener = mCallRefreshListenerOnScrollFinished;
 
 				switch (mCurrentMode) {
 					case MANUAL_REFRESH_ONLY:
@@ -786,10 +1439,10 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 	protected void onReleaseToRefresh() {
 		switch (mCurrentMode) {
 			case PULL_FROM_END:
-				mFooterLayout.releaseToRefresh();
+				getFooterLayout().releaseToRefresh();
 				break;
 			case PULL_FROM_START:
-				mHeaderLayout.releaseToRefresh();
+				getHeaderLayout().releaseToRefresh();
 				break;
 			default:
 				// NO-OP
@@ -806,12 +1459,70 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		mLayoutVisibilityChangesEnabled = true;
 
 		// Always reset both layouts, just in case...
-		mHeaderLayout.reset();
-		mFooterLayout.reset();
+		if (null != mHeaderLayout) {
+			mHeaderLayout.reset();
+		}
+		if (null != mFooterLayout) {
+			mFooterLayout.reset();
+		}
 
 		smoothScrollTo(0);
 	}
 
+	/**
+	 * Called once the UI thread is idle after the View has been attached, if
+	 * {@link #setPrewarmLoadingLayoutsEnabled(boolean)} has been enabled.
+	 * Derivative classes can override this to create any extra Loading
+	 * Layouts they create lazily. The header and footer need nothing, as
+	 * {@link #updateUIForMode()} has already created those the Mode shows.
+	 */
+	protected void onPrewarmLoadingLayouts() {
+		// NO-OP
+	}
+
+	/**
+	 * Called after every State transition, once the matching callback (such
+	 * as {@link #onReset()} or {@link #onRefreshing(boolean, boolean)}) has
+	 * been called, but before the {@link OnPullEventListener} is notified.
+	 * Any call to change the State from here is queued and run once this
+	 * transition has finished.
+	 * 
+	 * @param previousState - State the View was in before the transition
+	 * @param newState - State the View is now in
+	 */
+	protected void onStateChanged(State previousState, State newState) {
+	}
+
+	/**
+	 * Called once the Refreshable View's data has changed, after
+	 * {@link #notifyRefreshableViewDataChanged()}. If the header is being
+	 * animated at the time, this is only called once the animation has
+	 * finished, so that any changes made here aren't overridden by it.
+	 * 
+	 * @param state - State the View is currently in
+	 */
+	protected void onRefreshableViewDataChanged(State state) {
+	}
+
+	/**
+	 * Should be called by derivative classes when the Refreshable View's data
+	 * has changed. Results in a call to
+	 * {@link #onRefreshableViewDataChanged(State)} on the next frame. Any
+	 * number of calls before then only result in one call, so this is cheap
+	 * to call on every change.
+	 */
+	protected final void notifyRefreshableViewDataChanged() {
+		if (null == mDataChangedFrameClock) {
+			mDataChangedFrameClock = FrameClock.create(this, new FrameClock.FrameListener() {
+				@Override
+				public void onFrame(long frameTimeNanos) {
+					mStateMachine.post(Event.DATA_CHANGED);
+				}
+			});
+		}
+		mDataChangedFrameClock.postFrame();
+	}
+
     // Don't mess with refreshing stuff on save/restore instance state. It's just messing things up.
 //	@Override
 //	protected final void onRestoreInstanceState(Parcelable state) {
@@ -859,102 +1570,120 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 //	}
 
 	@Override
-	protected final void onSizeChanged(int w, int h, int oldw, int oldh) {
-		if (DEBUG) {
-			Log.d(LOG_TAG, String.format("onSizeChanged. W: %d, H: %d", w, h));
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+
+		if (mPrewarmLoadingLayouts) {
+			Looper.myQueue().addIdleHandler(mPrewarmIdleHandler);
 		}
+	}
 
-		super.onSizeChanged(w, h, oldw, oldh);
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
 
-		// We need to update the header/footer when our size changes
-		refreshLoadingViewsSize();
+		Looper.myQueue().removeIdleHandler(mPrewarmIdleHandler);
+
+		// Don't leave the View stuck refreshing if it's re-attached later
+		if (cancelRefreshTask()) {
+			onRefreshComplete();
+		}
+	}
 
-		// Update the Refreshable View layout
-		refreshRefreshableViewSize(w, h);
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		// Size the Loading Layouts and Refreshable View to the size we're
+		// being measured at, so that they're measured with it in this pass.
+		// Only the size along the scroll axis matters. An AT_MOST size may
+		// still shrink, and there's no size at all when UNSPECIFIED, so both
+		// are checked again in onSizeChanged().
+		final int scrollAxisSpec = mScrollAxis.select(widthMeasureSpec, heightMeasureSpec);
+		if (MeasureSpec.getMode(scrollAxisSpec) != MeasureSpec.UNSPECIFIED) {
+			final int size = MeasureSpec.getSize(scrollAxisSpec);
+			updateLoadingViewsSize(size);
+			updateRefreshableViewSize(size);
+		}
 
-		/**
-		 * As we're currently in a Layout Pass, we need to schedule another one
-		 * to layout any changes we've made here
-		 */
-		post(new Runnable() {
-			@Override
-			public void run() {
-				requestLayout();
-			}
-		});
+		super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+	}
+
+	@Override
+	protected final void onSizeChanged(int w, int h, int oldw, int oldh) {
+		mEventLog.log(EventLog.SIZE_CHANGED, w, h);
+
+		super.onSizeChanged(w, h, oldw, oldh);
+
+		// Catch sizes which onMeasure() couldn't know about
+		final int size = mScrollAxis.select(w, h);
+		if (updateLoadingViewsSize(size) | updateRefreshableViewSize(size)) {
+			/**
+			 * As we're currently in a Layout Pass, we need to schedule another
+			 * one to layout any changes we've made here
+			 */
+			removeCallbacks(mRequestLayoutRunnable);
+			post(mRequestLayoutRunnable);
+		}
 	}
 
 	/**
-	 * Re-measure the Loading Views height, and adjust internal padding as
-	 * necessary
+	 * Re-measure the Loading Views height, and adjust their margins as
+	 * necessary. This is done automatically whenever this View is measured.
 	 */
 	protected final void refreshLoadingViewsSize() {
-		final int maximumPullScroll = (int) (getMaximumPullScroll() * 1.2f);
-
-		int pLeft = getPaddingLeft();
-		int pTop = getPaddingTop();
-		int pRight = getPaddingRight();
-		int pBottom = getPaddingBottom();
-
-		switch (getPullToRefreshScrollDirection()) {
-			case HORIZONTAL:
-				if (mMode.showHeaderLoadingLayout()) {
-					mHeaderLayout.setWidth(maximumPullScroll);
-					pLeft = -maximumPullScroll;
-				} else {
-					pLeft = 0;
-				}
+		if (updateLoadingViewsSize(mScrollAxis.getSize(this))) {
+			requestLayout();
+		}
+	}
 
-				if (mMode.showFooterLoadingLayout()) {
-					mFooterLayout.setWidth(maximumPullScroll);
-					pRight = -maximumPullScroll;
-				} else {
-					pRight = 0;
-				}
-				break;
+	protected final void refreshRefreshableViewSize(int width, int height) {
+		if (updateRefreshableViewSize(mScrollAxis.select(width, height))) {
+			requestLayout();
+		}
+	}
 
-			case VERTICAL:
-				if (mMode.showHeaderLoadingLayout()) {
-					mHeaderLayout.setHeight(maximumPullScroll);
-					pTop = -maximumPullScroll;
-				} else {
-					pTop = 0;
-				}
+	/**
+	 * Sizes each Loading Layout to a little more than the maximum pull scroll,
+	 * and gives it an equal negative margin so that it sits just outside of
+	 * the visible area. Only the LayoutParams are changed.
+	 * 
+	 * @param size - Size of this View along the scroll axis
+	 * @return true if any LayoutParams were changed
+	 */
+	private boolean updateLoadingViewsSize(int size) {
+		final int loadingViewSize = (int) (getMaximumPullScroll(size) * 1.2f);
 
-				if (mMode.showFooterLoadingLayout()) {
-					mFooterLayout.setHeight(maximumPullScroll);
-					pBottom = -maximumPullScroll;
-				} else {
-					pBottom = 0;
-				}
-				break;
+		boolean changed = false;
+		if (mMode.showHeaderLoadingLayout()) {
+			changed |= updateLoadingViewSize(getHeaderLayout(), loadingViewSize, true);
 		}
-
-		if (DEBUG) {
-			Log.d(LOG_TAG, String.format("Setting Padding. L: %d, T: %d, R: %d, B: %d", pLeft, pTop, pRight, pBottom));
+		if (mMode.showFooterLoadingLayout()) {
+			changed |= updateLoadingViewSize(getFooterLayout(), loadingViewSize, false);
 		}
-		setPadding(pLeft, pTop, pRight, pBottom);
+		return changed;
 	}
 
-	protected final void refreshRefreshableViewSize(int width, int height) {
-		// We need to set the Height of the Refreshable View to the same as
-		// this layout
-		LinearLayout.LayoutParams lp = (LinearLayout.LayoutParams) mRefreshableViewWrapper.getLayoutParams();
-
-		switch (getPullToRefreshScrollDirection()) {
-			case HORIZONTAL:
-				if (lp.width != width) {
-					lp.width = width;
-					mRefreshableViewWrapper.requestLayout();
-				}
-				break;
-			case VERTICAL:
-				if (lp.height != height) {
-					lp.height = height;
-					mRefreshableViewWrapper.requestLayout();
-				}
-				break;
+	private boolean updateLoadingViewSize(LoadingLayout layout, int size, boolean isHeader) {
+		final LinearLayout.LayoutParams lp = (LinearLayout.LayoutParams) layout.getLayoutParams();
+		if (null == lp) {
+			// Not added yet
+			return false;
+		}
+
+		final boolean changed = mScrollAxis.setLayoutSize(lp, size) | mScrollAxis.setLayoutMargin(lp, -size, isHeader);
+		if (changed) {
+			mEventLog.log(EventLog.LOADING_LAYOUT_SIZE, size, isHeader ? 1 : 0);
 		}
+		return changed;
+	}
+
+	/**
+	 * Sets the size of the Refreshable View to the same as this layout.
+	 * 
+	 * @param size - Size of this View along the scroll axis
+	 * @return true if its LayoutParams were changed
+	 */
+	private boolean updateRefreshableViewSize(int size) {
+		return mScrollAxis.setLayoutSize(mRefreshableViewWrapper.getLayoutParams(), size);
 	}
 
 	/**
@@ -965,26 +1694,31 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 	 */
 	protected final void setHeaderScroll(int value,
 										 int initialOffset) {
-		if (DEBUG) {
-			Log.d(LOG_TAG, "setHeaderScroll: " + value);
-		}
+		mEventLog.log(EventLog.HEADER_SCROLL, value);
 
 		// Clamp value to with pull scroll range
-		final int maximumPullScroll = getMaximumPullScroll();
-		value = Math.min(maximumPullScroll, Math.max(-maximumPullScroll, value));
+		value = PullMath.clampScroll(value, getMaximumPullScroll());
 
 		if (mLayoutVisibilityChangesEnabled) {
 			if (value < 0) {
-				mHeaderLayout.setVisibility(View.VISIBLE);
+				if (null != mHeaderLayout) {
+					mHeaderLayout.setVisibility(View.VISIBLE);
+				}
 			} else if (value > 0) {
-				mFooterLayout.setVisibility(View.VISIBLE);
+				if (null != mFooterLayout) {
+					mFooterLayout.setVisibility(View.VISIBLE);
+				}
 			} else {
-				mHeaderLayout.setVisibility(View.INVISIBLE);
-				mFooterLayout.setVisibility(View.INVISIBLE);
+				if (null != mHeaderLayout) {
+					mHeaderLayout.setVisibility(View.INVISIBLE);
+				}
+				if (null != mFooterLayout) {
+					mFooterLayout.setVisibility(View.INVISIBLE);
+				}
 			}
 		}
 
-		if (USE_HW_LAYERS) {
+		if (USE_HW_LAYERS && !mTranslationScrollingEnabled) {
 			/**
 			 * Use a Hardware Layer on the Refreshable View if we've scrolled at
 			 * all. We don't use them on the Header/Footer Views as they change
@@ -1001,14 +1735,27 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 //		}
 		
 		value += initialOffset;
-		
-		switch (getPullToRefreshScrollDirection()) {
-			case VERTICAL:
-				scrollTo(0, value);
-				break;
-			case HORIZONTAL:
-				scrollTo(value, 0);
-				break;
+
+		mHeaderScroll = value;
+		applyHeaderScroll(value);
+	}
+
+	/**
+	 * @return The current header scroll, as last set by
+	 *         {@link #setHeaderScroll(int, int)}
+	 */
+	protected final int getHeaderScroll() {
+		return mHeaderScroll;
+	}
+
+	private void applyHeaderScroll(int value) {
+		if (mTranslationScrollingEnabled) {
+			// Move each child rather than the content of this View
+			for (int i = 0, z = getChildCount(); i < z; i++) {
+				mScrollAxis.translateTo(getChildAt(i), -value);
+			}
+		} else {
+			mScrollAxis.scrollTo(this, value);
 		}
 	}
 
@@ -1043,29 +1790,52 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		smoothScrollTo(scrollValue, getPullToRefreshScrollDurationLonger());
 	}
 
+	/**
+	 * Drops the cached Loading Layout proxies, so that the next call to
+	 * {@link #getLoadingLayoutProxy(boolean, boolean)} creates them again.
+	 * This is done automatically when the Mode changes. Derivative classes
+	 * should call it if they change which LoadingLayouts
+	 * {@link #createLoadingLayoutProxy(boolean, boolean)} would include.
+	 */
+	protected final void invalidateLoadingLayoutProxies() {
+		for (int i = 0; i < mLoadingLayoutProxies.length; i++) {
+			mLoadingLayoutProxies[i] = null;
+		}
+	}
+
+	private static int getLoadingLayoutProxyIndex(boolean includeStart, boolean includeEnd) {
+		return (includeStart ? 1 : 0) | (includeEnd ? 2 : 0);
+	}
+
 	/**
 	 * Updates the View State when the mode has been set. This does not do any
 	 * checking that the mode is different to current state so always updates.
 	 */
 	protected void updateUIForMode() {
-		// We need to use the correct LayoutParam values, based on scroll
-		// direction
-		final LinearLayout.LayoutParams lp = getLoadingLayoutLayoutParams();
+		// The Loading Layouts shown depend on the Mode
+		invalidateLoadingLayoutProxies();
 
 		// Remove Header, and then add Header Loading View again if needed
-		if (this == mHeaderLayout.getParent()) {
+		if (null != mHeaderLayout && this == mHeaderLayout.getParent()) {
 			removeView(mHeaderLayout);
 		}
 		if (mMode.showHeaderLoadingLayout()) {
-			addViewInternal(mHeaderLayout, 0, lp);
+			// Each Loading Layout needs its own LayoutParams, as their margins
+			// differ
+			addViewInternal(getHeaderLayout(), 0, getLoadingLayoutLayoutParams());
 		}
 
 		// Remove Footer, and then add Footer Loading View again if needed
-		if (this == mFooterLayout.getParent()) {
+		if (null != mFooterLayout && this == mFooterLayout.getParent()) {
 			removeView(mFooterLayout);
 		}
 		if (mMode.showFooterLoadingLayout()) {
-			addViewInternal(mFooterLayout, lp);
+			addViewInternal(getFooterLayout(), getLoadingLayoutLayoutParams());
+		}
+
+		// Newly added Loading Layouts need to be moved along with the others
+		if (mTranslationScrollingEnabled) {
+			applyHeaderScroll(mHeaderScroll);
 		}
 
 		// Hide Loading Views
@@ -1074,6 +1844,11 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		// If we're not using Mode.BOTH, set mCurrentMode to mMode, otherwise
 		// set it to pull down
 		mCurrentMode = (mMode != Mode.BOTH) ? mMode : Mode.PULL_FROM_START;
+
+		// Cache which edges can be pulled, as these are checked on every touch
+		// event
+		mPullFromStartEnabled = mMode.permitsPullToRefresh() && mMode.showHeaderLoadingLayout();
+		mPullFromEndEnabled = mMode.permitsPullToRefresh() && mMode.showFooterLoadingLayout();
 	}
 
 	private void addRefreshableView(Context context, T refreshableView) {
@@ -1086,6 +1861,17 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 	}
 
 	private void callRefreshListener() {
+		final OnPullMetricsListener metrics = mOnPullMetricsListener;
+		if (null != metrics) {
+			final long now = SystemClock.uptimeMillis();
+			if (mReleaseTimeMillis != 0) {
+				metrics.onRefreshStarted(now - mReleaseTimeMillis);
+			}
+			mRefreshStartTimeMillis = now;
+			TraceCompat.beginSection(TRACE_REFRESH);
+		}
+		mReleaseTimeMillis = 0;
+
 		if (null != mOnRefreshListener) {
 			mOnRefreshListener.onRefresh(this);
 		} else if (null != mOnRefreshListener2) {
@@ -1095,24 +1881,68 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 				mOnRefreshListener2.onPullUpToRefresh(this);
 			}
 		}
+
+		if (null != mRefreshTask) {
+			startRefreshTask();
+		}
+
+		if (null != metrics) {
+			TraceCompat.endSection();
+		}
+	}
+
+	private void reportRefreshCompleted() {
+		if (null != mOnPullMetricsListener && mRefreshStartTimeMillis != 0) {
+			mOnPullMetricsListener.onRefreshCompleted(SystemClock.uptimeMillis() - mRefreshStartTimeMillis);
+		}
+		mRefreshStartTimeMillis = 0;
+		mReleaseTimeMillis = 0;
+	}
+
+	private void startRefreshTask() {
+		final RefreshTaskRunner runner = new RefreshTaskRunner(mRefreshTask, mCurrentMode);
+		mActiveRefresh = runner;
+
+		try {
+			mRefreshTaskExecutor.execute(runner.mFuture);
+		} catch (RejectedExecutionException e) {
+			mActiveRefresh = null;
+			mRefreshTask.onRefreshFailed(mCurrentMode, e);
+			onRefreshComplete();
+			return;
+		}
+
+		if (mRefreshTimeoutMillis > 0) {
+			mMainHandler.postDelayed(mRefreshTimeoutRunnable, mRefreshTimeoutMillis);
+		}
+	}
+
+	/**
+	 * @return true if a running RefreshTask was cancelled
+	 */
+	private boolean cancelRefreshTask() {
+		final RefreshTaskRunner runner = mActiveRefresh;
+		if (null == runner) {
+			return false;
+		}
+
+		mActiveRefresh = null;
+		mMainHandler.removeCallbacks(mRefreshTimeoutRunnable);
+		runner.mFuture.cancel(true);
+		runner.mTask.onRefreshCancelled(runner.mDirection);
+		return true;
 	}
 
 	@SuppressWarnings("deprecation")
 	private void init(Context context, AttributeSet attrs) {
-		switch (getPullToRefreshScrollDirection()) {
-			case HORIZONTAL:
-				setOrientation(LinearLayout.HORIZONTAL);
-				break;
-			case VERTICAL:
-			default:
-				setOrientation(LinearLayout.VERTICAL);
-				break;
-		}
+		mScrollAxis = ScrollAxis.forOrientation(getPullToRefreshScrollDirection());
+		setOrientation(mScrollAxis.getLinearLayoutOrientation());
 
 		setGravity(Gravity.CENTER);
 
 		ViewConfiguration config = ViewConfiguration.get(context);
 		mTouchSlop = config.getScaledTouchSlop();
+		mMaximumFlingVelocity = config.getScaledMaximumFlingVelocity();
 
 		// Styleables from XML
 		TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.PullToRefresh);
@@ -1131,9 +1961,10 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		mRefreshableView = createRefreshableView(context, attrs);
 		addRefreshableView(context, mRefreshableView);
 
-		// We need to create now layouts now
-		mHeaderLayout = createLoadingLayout(context, Mode.PULL_FROM_START, a);
-		mFooterLayout = createLoadingLayout(context, Mode.PULL_FROM_END, a);
+		// The Loading Layouts are created once they're first needed, which
+		// happens in updateUIForMode() for those the Mode shows. Their
+		// attributes are read now, so that the TypedArray can be recycled
+		mLoadingLayoutAttributes = new LoadingLayoutAttributes(a);
 
 		/**
 		 * Styleables from XML
@@ -1161,7 +1992,7 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		}
 
 		// Let the derivative classes have a go at handling attributes, then
-		// recycle them...
+		// recycle them
 		handleStyledAttributes(a);
 		a.recycle();
 
@@ -1169,96 +2000,181 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		updateUIForMode();
 	}
 
-	private boolean isReadyForPull() {
-		switch (mMode) {
-			case PULL_FROM_START:
-				return isReadyForPullStart();
-			case PULL_FROM_END:
-				return isReadyForPullEnd();
-			case BOTH:
-				return isReadyForPullEnd() || isReadyForPullStart();
-			default:
-				return false;
+	private void addMovement(MotionEvent event) {
+		if (null == mVelocityTracker) {
+			mVelocityTracker = VelocityTracker.obtain();
+		} else if (event.getAction() == MotionEvent.ACTION_DOWN) {
+			// Start of a new gesture, forget about the last one
+			mVelocityTracker.clear();
+		}
+		mVelocityTracker.addMovement(event);
+	}
+
+	private void recycleVelocityTracker() {
+		if (null != mVelocityTracker) {
+			mVelocityTracker.recycle();
+			mVelocityTracker = null;
 		}
 	}
 
 	/**
-	 * Actions a Pull Event
-	 * 
-	 * @return true if the Event has been handled, false if there has been no
-	 *         change
-	 */
-	private void pullEvent() {
-		final int newScrollValue;
-		final int itemDimension;
-		final float initialMotionValue, lastMotionValue;
-
-		switch (getPullToRefreshScrollDirection()) {
-			case HORIZONTAL:
-				initialMotionValue = mInitialMotionX;
-				lastMotionValue = mLastMotionX;
-				break;
-			case VERTICAL:
-			default:
-				initialMotionValue = mInitialMotionY;
-				lastMotionValue = mLastMotionY;
-				break;
+	 * @return Velocity of the pointer along the scroll direction, in pixels
+	 *         per second. Positive values mean the pointer is moving down (or
+	 *         right), which is pulling from the start.
+	 */
+	private float computePullVelocity() {
+		if (null == mVelocityTracker) {
+			return 0f;
+		}
+
+		mVelocityTracker.computeCurrentVelocity(1000, mMaximumFlingVelocity);
+		return mScrollAxis.getVelocity(mVelocityTracker);
+	}
+
+	/**
+	 * Sets the last motion values to the position the pointer is predicted to
+	 * be at one frame after <var>event</var>. The prediction is capped to the
+	 * touch slop, so that a sudden change of direction can't throw the header
+	 * too far.
+	 */
+	private void predictMotion(MotionEvent event) {
+		float predictedX = 0f, predictedY = 0f;
+
+		if (null != mVelocityTracker) {
+			mVelocityTracker.computeCurrentVelocity(1, mMaximumFlingVelocity / 1000f);
+			predictedX = mVelocityTracker.getXVelocity() * mFrameIntervalMillis;
+			predictedY = mVelocityTracker.getYVelocity() * mFrameIntervalMillis;
+
+			predictedX = Math.max(-mTouchSlop, Math.min(mTouchSlop, predictedX));
+			predictedY = Math.max(-mTouchSlop, Math.min(mTouchSlop, predictedY));
+		}
+
+		mLastMotionX = event.getX() + predictedX;
+		mLastMotionY = event.getY() + predictedY;
+	}
+
+	/**
+	 * @return true if the pull is being released quickly enough to refresh,
+	 *         even though it hasn't been pulled past the Loading Layout.
+	 */
+	private boolean isFlingToRefresh(float pullVelocity) {
+		if (mRefreshFlingVelocity <= 0 || mState != State.PULL_TO_REFRESH) {
+			return false;
 		}
 
 		switch (mCurrentMode) {
 			case PULL_FROM_END:
-				newScrollValue = Math.round(Math.max(initialMotionValue - lastMotionValue, 0) / FRICTION);
-				itemDimension = getFooterSize();
-				break;
+				return -pullVelocity >= mRefreshFlingVelocity;
 			case PULL_FROM_START:
 			default:
-				newScrollValue = Math.round(Math.min(initialMotionValue - lastMotionValue, 0) / FRICTION);
-				itemDimension = getHeaderSize();
-				break;
+				return pullVelocity >= mRefreshFlingVelocity;
 		}
-		
+	}
+
+	/**
+	 * Lets go of the current pull.
+	 * 
+	 * @param pullVelocity - Velocity of the pull when it was let go, 0 if not
+	 *            known
+	 */
+	private void releasePull(float pullVelocity) {
+		// The header scroll moves in the opposite direction to the
+		// pointer, at 1/FRICTION of its speed
+		mReleaseVelocity = -pullVelocity / FRICTION;
+
+		int flags = 0;
+		if (isRefreshAllowed()) {
+			flags |= RefreshStateMachine.FLAG_REFRESH_ALLOWED;
+		}
+		if (isFlingToRefresh(pullVelocity)) {
+			flags |= RefreshStateMachine.FLAG_FLUNG;
+		}
+		mReleaseTimeMillis = SystemClock.uptimeMillis();
+		mStateMachine.post(Event.RELEASE, flags);
+	}
+
+	private int getNestedScrollAxis() {
+		return mScrollAxis.getNestedScrollAxis();
+	}
+
+	/**
+	 * Moves the header to match {@link #mNestedPullDistance}
+	 */
+	private void nestedPull() {
+		pullTo(Math.round(mNestedPullDistance / FRICTION));
+	}
+
+	/**
+	 * @return true if there is anything to call when refreshing
+	 */
+	private boolean isRefreshAllowed() {
+		return null != mOnRefreshListener || null != mOnRefreshListener2 || null != mRefreshTask;
+	}
+
+	private boolean isReadyForPull() {
+		return (mPullFromEndEnabled && isReadyForPullEnd()) || (mPullFromStartEnabled && isReadyForPullStart());
+	}
+
+	/**
+	 * Actions a Pull Event
+	 * 
+	 * @return true if the header was moved, false if there has been no change
+	 */
+	private boolean pullEvent() {
+		final float initialMotionValue = mScrollAxis.select(mInitialMotionX, mInitialMotionY);
+		final float lastMotionValue = mScrollAxis.select(mLastMotionX, mLastMotionY);
+
+		return pullTo(PullMath.getPullScroll(initialMotionValue, lastMotionValue, mCurrentMode == Mode.PULL_FROM_END,
+				FRICTION));
+	}
+
+	/**
+	 * Moves the header to <var>newScrollValue</var> as part of a pull, and
+	 * updates the Loading Layout and state to match.
+	 * 
+	 * @return true if the header was moved, false if there has been no change
+	 */
+	private boolean pullTo(int newScrollValue) {
+		final int itemDimension = mCurrentMode == Mode.PULL_FROM_END ? getFooterSize() : getHeaderSize();
+
+		// Sub-pixel pointer movement rounds to the same scroll value, in which
+		// case nothing would change
+		if (newScrollValue == mLastPullScrollValue) {
+			mSkippedPullUpdates++;
+			return false;
+		}
+		mLastPullScrollValue = newScrollValue;
+
 		setHeaderScroll(newScrollValue, getInitialYOffsetHeader());
 
 		if (newScrollValue != 0 && !isRefreshing()) {
 			float scale = Math.abs(newScrollValue) / (float) itemDimension;
 			switch (mCurrentMode) {
 				case PULL_FROM_END:
-					mFooterLayout.onPull(scale);
+					getFooterLayout().onPull(scale);
 					break;
 				case PULL_FROM_START:
 				default:
-					mHeaderLayout.onPull(scale);
+					getHeaderLayout().onPull(scale);
 					break;
 			}
 
-			if (mState != State.PULL_TO_REFRESH && itemDimension >= Math.abs(newScrollValue)) {
-				setState(State.PULL_TO_REFRESH);
-			} else if (mState == State.PULL_TO_REFRESH && itemDimension < Math.abs(newScrollValue)) {
-				setState(State.RELEASE_TO_REFRESH);
-			}
+			mStateMachine.post(Event.DRAG,
+					itemDimension < Math.abs(newScrollValue) ? RefreshStateMachine.FLAG_PAST_THRESHOLD : 0);
 		}
+		return true;
 	}
 
 	private LinearLayout.LayoutParams getLoadingLayoutLayoutParams() {
-		switch (getPullToRefreshScrollDirection()) {
-			case HORIZONTAL:
-				return new LinearLayout.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT,
-						LinearLayout.LayoutParams.MATCH_PARENT);
-			case VERTICAL:
-			default:
-				return new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT,
-						LinearLayout.LayoutParams.WRAP_CONTENT);
-		}
+		return mScrollAxis.createLoadingLayoutParams();
 	}
 
 	private int getMaximumPullScroll() {
-		switch (getPullToRefreshScrollDirection()) {
-			case HORIZONTAL:
-				return Math.round(getWidth() / FRICTION);
-			case VERTICAL:
-			default:
-				return Math.round(getHeight() / FRICTION);
-		}
+		return getMaximumPullScroll(mScrollAxis.getSize(this));
+	}
+
+	private static int getMaximumPullScroll(int size) {
+		return Math.round(size / FRICTION);
 	}
 
 	/**
@@ -1273,44 +2189,39 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 
 	private final void smoothScrollTo(int newScrollValue, long duration, long delayMillis,
 			OnSmoothScrollFinishedListener listener) {
-		if (null != mCurrentSmoothScrollRunnable) {
-			mCurrentSmoothScrollRunnable.stop();
+		// If we're interrupting a running animation, carry its velocity over.
+		// Otherwise use the velocity the user released the pull at, if any.
+		float velocity = mReleaseVelocity;
+		mReleaseVelocity = 0f;
+		if (null != mSmoothScrollAnimator && mSmoothScrollAnimator.isRunning()) {
+			velocity = mSmoothScrollAnimator.getVelocity();
 		}
 
-		final int oldScrollValue;
-		switch (getPullToRefreshScrollDirection()) {
-			case HORIZONTAL:
-				oldScrollValue = getScrollX();
-				break;
-			case VERTICAL:
-			default:
-				oldScrollValue = getScrollY();
-				break;
-		}
+		final int oldScrollValue = mHeaderScroll;
 
 		if (oldScrollValue != newScrollValue) {
 			if (null == mScrollAnimationInterpolator) {
 				// Default interpolator is a Decelerate Interpolator
 				mScrollAnimationInterpolator = new DecelerateInterpolator();
 			}
-			mCurrentSmoothScrollRunnable = new SmoothScrollRunnable(oldScrollValue, newScrollValue, duration, listener);
-
-			if (delayMillis > 0) {
-				postDelayed(mCurrentSmoothScrollRunnable, delayMillis);
+			if (null == mSmoothScrollAnimator) {
+				mSmoothScrollAnimator = new SmoothScrollAnimator();
+			}
+			if (mSettleStyle == SettleStyle.SPRING) {
+				mSmoothScrollAnimator.startSpring(oldScrollValue, newScrollValue, velocity, mSpringStiffness,
+						delayMillis, listener);
 			} else {
-				post(mCurrentSmoothScrollRunnable);
+				duration = PullMath.getInterpolatedDuration(newScrollValue - oldScrollValue, velocity, duration,
+						SMOOTH_SCROLL_MIN_DURATION_MS);
+				mSmoothScrollAnimator.start(oldScrollValue, newScrollValue, duration, delayMillis, listener);
 			}
+		} else if (null != mSmoothScrollAnimator) {
+			mSmoothScrollAnimator.stop();
 		}
 	}
 
 	private final void smoothScrollToAndBack(int y) {
-		smoothScrollTo(y, SMOOTH_SCROLL_DURATION_MS, 0, new OnSmoothScrollFinishedListener() {
-
-			@Override
-			public void onSmoothScrollFinished() {
-				smoothScrollTo(0, SMOOTH_SCROLL_DURATION_MS, DEMO_SCROLL_INTERVAL, null);
-			}
-		});
+		smoothScrollTo(y, SMOOTH_SCROLL_DURATION_MS, 0, mScrollBackOnScrollFinished);
 	}
 
 	public static enum AnimationStyle {
@@ -1324,7 +2235,15 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		 * This is the old default, and what is commonly used on iOS. Uses an
 		 * arrow image which flips depending on where the user has scrolled.
 		 */
-		FLIP;
+		FLIP,
+
+		/**
+		 * A lightweight indicator which draws its arrow, spinner and labels
+		 * directly onto a single View, instead of using an ImageView,
+		 * ProgressBar and TextViews. Custom drawables and text appearances
+		 * are not supported.
+		 */
+		ARC;
 
 		static AnimationStyle getDefault() {
 			return ROTATE;
@@ -1345,10 +2264,13 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 					return ROTATE;
 				case 0x1:
 					return FLIP;
+				case 0x2:
+					return ARC;
 			}
 		}
 
-		LoadingLayout createLoadingLayout(Context context, Mode mode, Orientation scrollDirection, TypedArray attrs) {
+		LoadingLayout createLoadingLayout(Context context, Mode mode, Orientation scrollDirection,
+				LoadingLayoutAttributes attrs) {
 			switch (this) {
 				case ROTATE:
 				default:
@@ -1357,10 +2279,86 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 				case FLIP:
 //					Log.v("TAG", "FLIP");
 					return new FlipLoadingLayout(context, mode, scrollDirection, attrs);
+				case ARC:
+					return new ArcLoadingLayout(context, mode, scrollDirection, attrs);
 			}
 		}
 	}
 
+	public static enum SettleStyle {
+		/**
+		 * This is the default. Animated scrolls run for a fixed duration,
+		 * using the Interpolator set via
+		 * {@link PullToRefreshBase#setScrollAnimationInterpolator(Interpolator)
+		 * setScrollAnimationInterpolator()}. The duration is shortened when
+		 * the header is already moving towards the target faster than the
+		 * scroll would start.
+		 */
+		INTERPOLATED,
+
+		/**
+		 * Animated scrolls are driven by a critically damped spring. The
+		 * spring starts from whatever velocity the header is currently moving
+		 * at, and finishes as soon as it is visually at rest.
+		 */
+		SPRING;
+
+		static SettleStyle getDefault() {
+			return INTERPOLATED;
+		}
+	}
+
+	public static enum EventLogLevel {
+		/**
+		 * Nothing is recorded. This is the default.
+		 */
+		OFF(EventLog.LEVEL_OFF),
+
+		/**
+		 * State, Mode and size changes, plus data reconciliation and children
+		 * being added.
+		 */
+		STATE(EventLog.LEVEL_STATE),
+
+		/**
+		 * Everything in {@link #STATE}, plus every header scroll, overscroll
+		 * and list scroll. This records events on every frame.
+		 */
+		SCROLL(EventLog.LEVEL_SCROLL);
+
+		private int mLogLevel;
+
+		EventLogLevel(int logLevel) {
+			mLogLevel = logLevel;
+		}
+
+		int getLogLevel() {
+			return mLogLevel;
+		}
+	}
+
+	public static enum OverScrollStyle {
+		/**
+		 * This is the default. The header follows the overscroll of the
+		 * Refreshable View while a fling bounces off its edge, and never
+		 * refreshes.
+		 */
+		FOLLOW,
+
+		/**
+		 * The velocity the fling hits the edge at is carried into the header,
+		 * which springs out and back. If
+		 * {@link PullToRefreshBase#setOverScrollRefreshEnabled(boolean)
+		 * setOverScrollRefreshEnabled()} is set, and the header would pass the
+		 * Loading Layout, the View refreshes instead.
+		 */
+		MOMENTUM;
+
+		static OverScrollStyle getDefault() {
+			return FOLLOW;
+		}
+	}
+
 	public static enum Mode {
 
 		/**
@@ -1404,6 +2402,9 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		 */
 		public static Mode PULL_UP_TO_REFRESH = Mode.PULL_FROM_END;
 
+		// values() returns a new copy on every call
+		private static final Mode[] VALUES = values();
+
 		/**
 		 * Maps an int to a specific mode. This is needed when saving state, or
 		 * inflating the view from XML where the mode is given through a attr
@@ -1413,7 +2414,7 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		 * @return Mode that modeInt maps to, or PULL_FROM_START by default.
 		 */
 		static Mode mapIntToValue(final int modeInt) {
-			for (Mode value : Mode.values()) {
+			for (Mode value : VALUES) {
 				if (modeInt == value.getIntValue()) {
 					return value;
 				}
@@ -1481,6 +2482,21 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 
 	}
 
+	/**
+	 * Listener that allows you to be notified when the user has scrolled close
+	 * to the end of the AdapterView, so that more items can be loaded before
+	 * they reach it. See (
+	 * {@link PullToRefreshAdapterViewBase#setOnPrefetchListener}.
+	 */
+	public static interface OnPrefetchListener {
+
+		/**
+		 * Called when the next page should be loaded
+		 */
+		public void onPrefetch();
+
+	}
+
 	/**
 	 * Listener that allows you to be notified when the user has started or
 	 * finished a touch event. Useful when you want to append extra UI events
@@ -1507,6 +2523,51 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 
 	}
 
+	/**
+	 * Listener that is given performance metrics about a PullToRefresh View,
+	 * so that they can be aggregated into your own telemetry. See
+	 * {@link PullToRefreshBase#setOnPullMetricsListener}. All callbacks are
+	 * made on the UI thread.
+	 */
+	public static interface OnPullMetricsListener {
+
+		/**
+		 * Called after a touch MOVE event has moved the header.
+		 * 
+		 * @param latencyMillis - Time from the event happening, to the header
+		 *            having been moved for it.
+		 */
+		public void onPullMoved(long latencyMillis);
+
+		/**
+		 * Called for each frame of a header scroll animation, other than the
+		 * first.
+		 * 
+		 * @param frameDurationNanos - Time since the previous frame.
+		 * @param droppedFrames - How many display frames were missed since the
+		 *            previous frame.
+		 */
+		public void onScrollAnimationFrame(long frameDurationNanos, int droppedFrames);
+
+		/**
+		 * Called just before the refresh listeners are called, if the refresh
+		 * was started by the user releasing a pull.
+		 * 
+		 * @param releaseToRefreshMillis - Time from the user letting go, to
+		 *            the refresh starting.
+		 */
+		public void onRefreshStarted(long releaseToRefreshMillis);
+
+		/**
+		 * Called when the View has been reset after a refresh.
+		 * 
+		 * @param refreshDurationMillis - Time from the refresh listeners being
+		 *            called, to the refresh being complete.
+		 */
+		public void onRefreshCompleted(long refreshDurationMillis);
+
+	}
+
 	/**
 	 * Simple Listener to listen for any callbacks to Refresh.
 	 * 
@@ -1546,6 +2607,46 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 
 	}
 
+	/**
+	 * Work which is run in the background whenever the View refreshes. See
+	 * {@link PullToRefreshBase#setRefreshTask(RefreshTask, Executor)
+	 * setRefreshTask()}.
+	 */
+	public static abstract class RefreshTask {
+
+		/**
+		 * Called on the Executor's thread to do the actual load. This must not
+		 * touch the View.
+		 * 
+		 * @param direction - One of {@link Mode#PULL_FROM_START} or
+		 *            {@link Mode#PULL_FROM_END} depending on which end the
+		 *            refresh was started from.
+		 */
+		protected abstract void doInBackground(Mode direction) throws Exception;
+
+		/**
+		 * Called on the UI thread once {@link #doInBackground(Mode)} has
+		 * returned, just before the View's refresh is completed.
+		 */
+		protected void onRefreshSucceeded(Mode direction) {
+		}
+
+		/**
+		 * Called on the UI thread if {@link #doInBackground(Mode)} has thrown,
+		 * or couldn't be run, just before the View's refresh is completed.
+		 */
+		protected void onRefreshFailed(Mode direction, Throwable error) {
+		}
+
+		/**
+		 * Called on the UI thread if the task has been cancelled, because it
+		 * timed out or the View was reset or detached.
+		 */
+		protected void onRefreshCancelled(Mode direction) {
+		}
+
+	}
+
 	public static enum Orientation {
 		VERTICAL, HORIZONTAL;
 	}
@@ -1556,36 +2657,48 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		 * When the UI is in a state which means that user is not interacting
 		 * with the Pull-to-Refresh function.
 		 */
-		RESET(0x0),
+		RESET(0x0, RefreshStateMachine.STATE_RESET),
 
 		/**
 		 * When the UI is being pulled by the user, but has not been pulled far
 		 * enough so that it refreshes when released.
 		 */
-		PULL_TO_REFRESH(0x1),
+		PULL_TO_REFRESH(0x1, RefreshStateMachine.STATE_PULL_TO_REFRESH),
 
 		/**
 		 * When the UI is being pulled by the user, and <strong>has</strong>
 		 * been pulled far enough so that it will refresh when released.
 		 */
-		RELEASE_TO_REFRESH(0x2),
+		RELEASE_TO_REFRESH(0x2, RefreshStateMachine.STATE_RELEASE_TO_REFRESH),
 
 		/**
 		 * When the UI is currently refreshing, caused by a pull gesture.
 		 */
-		REFRESHING(0x8),
+		REFRESHING(0x8, RefreshStateMachine.STATE_REFRESHING),
 
 		/**
 		 * When the UI is currently refreshing, caused by a call to
 		 * {@link PullToRefreshBase#setRefreshing() setRefreshing()}.
 		 */
-		MANUAL_REFRESHING(0x9),
+		MANUAL_REFRESHING(0x9, RefreshStateMachine.STATE_MANUAL_REFRESHING),
 
 		/**
 		 * When the UI is currently overscrolling, caused by a fling on the
 		 * Refreshable View.
 		 */
-		OVERSCROLLING(0x10);
+		OVERSCROLLING(0x10, RefreshStateMachine.STATE_OVERSCROLLING);
+
+		// values() returns a new copy on every call
+		private static final State[] VALUES = values();
+
+		// Indexed by RefreshStateMachine state
+		private static final State[] MACHINE_STATES = new State[RefreshStateMachine.STATE_COUNT];
+
+		static {
+			for (State value : VALUES) {
+				MACHINE_STATES[value.mMachineState] = value;
+			}
+		}
 
 		/**
 		 * Maps an int to a specific state. This is needed when saving state.
@@ -1594,7 +2707,7 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 		 * @return State that stateInt maps to
 		 */
 		static State mapIntToValue(final int stateInt) {
-			for (State value : State.values()) {
+			for (State value : VALUES) {
 				if (stateInt == value.getIntValue()) {
 					return value;
 				}
@@ -1604,74 +2717,273 @@ public abstract class PullToRefreshBase<T extends View> extends LinearLayout imp
 			return RESET;
 		}
 
+		static State fromMachineState(int machineState) {
+			return MACHINE_STATES[machineState];
+		}
+
 		private int mIntValue;
+		private int mMachineState;
 
-		State(int intValue) {
+		State(int intValue, int machineState) {
 			mIntValue = intValue;
+			mMachineState = machineState;
 		}
 
 		int getIntValue() {
 			return mIntValue;
 		}
+
+		/**
+		 * @return The matching {@link RefreshStateMachine} state code
+		 */
+		int getMachineState() {
+			return mMachineState;
+		}
 	}
 
-	final class SmoothScrollRunnable implements Runnable {
-		private final Interpolator mInterpolator;
-		private final int mScrollToY;
-		private final int mScrollFromY;
-		private final long mDuration;
+	/**
+	 * Animates the header scroll between two values. There is only ever one of
+	 * these per View, which is re-armed for each animation. Frames are driven
+	 * by {@link FrameClock}, so all timing is taken from the frame being drawn
+	 * rather than from when the callback happened to run.
+	 */
+	final class SmoothScrollAnimator implements FrameClock.FrameListener {
+
+		/**
+		 * A spring is considered at rest once it is within half a pixel of its
+		 * target, and moving slower than this (in pixels per second).
+		 */
+		static final float SPRING_REST_VELOCITY = 30f;
+
+		private final FrameClock mFrameClock;
+
+		private Interpolator mInterpolator;
+		private int mScrollToY;
+		private int mScrollFromY;
+		private long mDurationNanos;
 		private OnSmoothScrollFinishedListener mListener;
 
-		private boolean mContinueRunning = true;
+		private boolean mSpring;
+		private float mSpringOmega;
+		private float mStartVelocity;
+
+		private boolean mRunning = false;
 		private long mStartTime = -1;
+		private long mLastFrameTime;
 		private int mCurrentY = -1;
+		private float mVelocity;
+
+		SmoothScrollAnimator() {
+			mFrameClock = FrameClock.create(PullToRefreshBase.this, this);
+		}
+
+		public void start(int fromY, int toY, long duration, long delayMillis, OnSmoothScrollFinishedListener listener) {
+			mSpring = false;
+			mInterpolator = mScrollAnimationInterpolator;
+			mDurationNanos = Math.max(duration, 1) * 1000000L;
+			startInternal(fromY, toY, 0f, delayMillis, listener);
+		}
+
+		/**
+		 * Starts a critically damped spring from <var>fromY</var> to
+		 * <var>toY</var>.
+		 * 
+		 * @param velocity - Initial velocity, in pixels per second of header
+		 *            scroll
+		 * @param stiffness - Stiffness of the spring
+		 */
+		public void startSpring(int fromY, int toY, float velocity, float stiffness, long delayMillis,
+				OnSmoothScrollFinishedListener listener) {
+			mSpring = true;
+			mSpringOmega = (float) Math.sqrt(stiffness);
+			startInternal(fromY, toY, velocity, delayMillis, listener);
+		}
+
+		private void startInternal(int fromY, int toY, float velocity, long delayMillis,
+				OnSmoothScrollFinishedListener listener) {
+			mFrameClock.cancel();
 
-		public SmoothScrollRunnable(int fromY, int toY, long duration, OnSmoothScrollFinishedListener listener) {
 			mScrollFromY = fromY;
 			mScrollToY = toY;
-			mInterpolator = mScrollAnimationInterpolator;
-			mDuration = duration;
+			mStartVelocity = velocity;
 			mListener = listener;
+
+			mStartTime = -1;
+			mCurrentY = fromY;
+			mVelocity = velocity;
+			if (!mRunning) {
+				mRunning = true;
+				mStateMachine.post(Event.SCROLL_STARTED);
+			}
+
+			if (delayMillis > 0) {
+				mFrameClock.postFrameDelayed(delayMillis);
+			} else {
+				mFrameClock.postFrame();
+			}
 		}
 
 		@Override
-		public void run() {
+		public void onFrame(long frameTimeNanos) {
+			if (!mRunning) {
+				return;
+			}
 
 			/**
-			 * Only set mStartTime if this is the first time we're starting,
-			 * else actually calculate the Y delta
+			 * Only set mStartTime if this is the first frame, else actually
+			 * calculate the Y delta
 			 */
+			boolean finished = false;
 			if (mStartTime == -1) {
-				mStartTime = System.currentTimeMillis();
+				mStartTime = frameTimeNanos;
 			} else {
+				final OnPullMetricsListener metrics = mOnPullMetricsListener;
+				if (null != metrics) {
+					TraceCompat.beginSection(TRACE_SCROLL_FRAME);
+				}
 
-				/**
-				 * We do do all calculations in long to reduce software float
-				 * calculations. We use 1000 as it gives us good accuracy and
-				 * small rounding errors
-				 */
-				long normalizedTime = (1000 * (System.currentTimeMillis() - mStartTime)) / mDuration;
-				normalizedTime = Math.max(Math.min(normalizedTime, 1000), 0);
+				finished = mSpring ? stepSpring(frameTimeNanos) : stepInterpolated(frameTimeNanos);
 
-				final int deltaY = Math.round((mScrollFromY - mScrollToY)
-						* mInterpolator.getInterpolation(normalizedTime / 1000f));
-				mCurrentY = mScrollFromY - deltaY;
-				setHeaderScroll(mCurrentY, 0);
+				if (null != metrics) {
+					TraceCompat.endSection();
+
+					final long frameDurationNanos = frameTimeNanos - mLastFrameTime;
+					final int droppedFrames = Math.round(frameDurationNanos / (getFrameIntervalMillis() * 1e6f)) - 1;
+					metrics.onScrollAnimationFrame(frameDurationNanos, Math.max(0, droppedFrames));
+				}
 			}
+			mLastFrameTime = frameTimeNanos;
 
 			// If we're not at the target Y, keep going...
-			if (mContinueRunning && mScrollToY != mCurrentY) {
-				ViewCompat.postOnAnimation(PullToRefreshBase.this, this);
+			if (!finished) {
+				mFrameClock.postFrame();
 			} else {
-				if (null != mListener) {
-					mListener.onSmoothScrollFinished();
+				mRunning = false;
+				mVelocity = 0f;
+
+				// Clear the listener before calling it, as it may well start
+				// another animation on this instance
+				final OnSmoothScrollFinishedListener listener = mListener;
+				mListener = null;
+				mStateMachine.post(Event.SCROLL_FINISHED);
+				if (null != listener) {
+					listener.onSmoothScrollFinished();
 				}
 			}
 		}
 
+		private boolean stepInterpolated(long frameTimeNanos) {
+			final long normalizedTime = PullMath.getNormalizedTime(frameTimeNanos - mStartTime, mDurationNanos);
+			final int newY = PullMath.getInterpolatedScroll(mScrollFromY, mScrollToY,
+					mInterpolator.getInterpolation(normalizedTime / (float) PullMath.NORMALIZED_TIME_MAX));
+
+			final long frameDelta = frameTimeNanos - mLastFrameTime;
+			if (frameDelta > 0) {
+				mVelocity = (newY - mCurrentY) * 1e9f / frameDelta;
+			}
+
+			mCurrentY = newY;
+			setHeaderScroll(mCurrentY, 0);
+
+			return mScrollToY == mCurrentY || normalizedTime == PullMath.NORMALIZED_TIME_MAX;
+		}
+
+		/**
+		 * Uses the closed form of a critically damped spring, so the result
+		 * only depends on the elapsed time and not on the frame rate:
+		 * x(t) = (x0 + (v0 + w * x0) * t) * e^(-w * t)
+		 */
+		private boolean stepSpring(long frameTimeNanos) {
+			final float t = (frameTimeNanos - mStartTime) / 1e9f;
+			final float w = mSpringOmega;
+			final float x0 = mScrollFromY - mScrollToY;
+			final float b = mStartVelocity + w * x0;
+			final float decay = (float) Math.exp(-w * t);
+
+			final float x = (x0 + b * t) * decay;
+			mVelocity = (b - w * (x0 + b * t)) * decay;
+
+			if (Math.abs(x) < 0.5f && Math.abs(mVelocity) < SPRING_REST_VELOCITY) {
+				mCurrentY = mScrollToY;
+				setHeaderScroll(mCurrentY, 0);
+				return true;
+			}
+
+			mCurrentY = mScrollToY + Math.round(x);
+			setHeaderScroll(mCurrentY, 0);
+			return false;
+		}
+
+		/**
+		 * @return The current velocity of the animation, in pixels per second
+		 *         of header scroll.
+		 */
+		public float getVelocity() {
+			return mVelocity;
+		}
+
+		public boolean isRunning() {
+			return mRunning;
+		}
+
 		public void stop() {
-			mContinueRunning = false;
-			removeCallbacks(this);
+			mListener = null;
+			mFrameClock.cancel();
+			if (mRunning) {
+				mRunning = false;
+				mStateMachine.post(Event.SCROLL_FINISHED);
+			}
+		}
+	}
+
+	/**
+	 * Runs a RefreshTask on its Executor, and then delivers the result back on
+	 * the UI thread. A result is only delivered if the runner is still the
+	 * active one, so cancelled or timed out runs are simply dropped.
+	 */
+	final class RefreshTaskRunner implements Callable<Void>, Runnable {
+
+		final RefreshTask mTask;
+		final Mode mDirection;
+		final FutureTask<Void> mFuture;
+
+		RefreshTaskRunner(RefreshTask task, Mode direction) {
+			mTask = task;
+			mDirection = direction;
+			mFuture = new FutureTask<Void>(this) {
+				@Override
+				protected void done() {
+					mMainHandler.post(RefreshTaskRunner.this);
+				}
+			};
+		}
+
+		@Override
+		public Void call() throws Exception {
+			mTask.doInBackground(mDirection);
+			return null;
+		}
+
+		@Override
+		public void run() {
+			if (mActiveRefresh != this) {
+				return;
+			}
+			mActiveRefresh = null;
+			mMainHandler.removeCallbacks(mRefreshTimeoutRunnable);
+
+			try {
+				mFuture.get();
+				mTask.onRefreshSucceeded(mDirection);
+			} catch (ExecutionException e) {
+				mTask.onRefreshFailed(mDirection, e.getCause());
+			} catch (CancellationException e) {
+				mTask.onRefreshCancelled(mDirection);
+			} catch (InterruptedException e) {
+				mTask.onRefreshCancelled(mDirection);
+			}
+
+			onRefreshComplete();
 		}
 	}
 
@@ -32,6 +32,7 @@ import android.widget.ListAdapter;
 import android.widget.ListView;
 
 import com.handmark.pulltorefresh.library.internal.EmptyViewMethodAccessor;
+import com.handmark.pulltorefresh.library.internal.EventLog;
 import com.handmark.pulltorefresh.library.internal.LoadingLayout;
 
 public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView> {
@@ -39,6 +40,14 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 	private LoadingLayout mHeaderLoadingView;
 	private LoadingLayout mFooterLoadingView;
 
+	/**
+	 * Record LoadingLayoutProxy calls made before the ListView's own Loading
+	 * Layouts have been created
+	 */
+	private PendingLoadingLayout mPendingHeaderLoadingView;
+	private PendingLoadingLayout mPendingFooterLoadingView;
+
+	private FrameLayout mLvHeaderLoadingFrame;
 	private FrameLayout mLvFooterLoadingFrame;
 
 	private boolean mListViewExtrasEnabled;
@@ -88,18 +97,18 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 			case MANUAL_REFRESH_ONLY:
 			case PULL_FROM_END:
 				origLoadingView = getFooterLayout();
-				listViewLoadingView = mFooterLoadingView;
+				listViewLoadingView = getFooterLoadingView();
 				oppositeListViewLoadingView = mHeaderLoadingView;
 				selection = mRefreshableView.getCount() - 1;
-				scrollToY = getScrollY() - getFooterSize();
+				scrollToY = getHeaderScroll() - getFooterSize();
 				break;
 			case PULL_FROM_START:
 			default:
 				origLoadingView = getHeaderLayout();
-				listViewLoadingView = mHeaderLoadingView;
+				listViewLoadingView = getHeaderLoadingView();
 				oppositeListViewLoadingView = mFooterLoadingView;
 				selection = 0;
-				scrollToY = getScrollY() + getHeaderSize();
+				scrollToY = getHeaderScroll() + getHeaderSize();
 				break;
 		}
 
@@ -108,7 +117,9 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 		origLoadingView.hideAllViews();
 
 		// Make sure the opposite end is hidden too
-		oppositeListViewLoadingView.setVisibility(View.GONE);
+		if (null != oppositeListViewLoadingView) {
+			oppositeListViewLoadingView.setVisibility(View.GONE);
+		}
 
 		// Show the ListView Loading View and set it to refresh.
 		listViewLoadingView.setVisibility(View.VISIBLE);
@@ -130,7 +141,7 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
             if (smoothScroll) {
                 smoothScrollTo(0);
             } else {
-                scrollTo(0, 0);
+                setHeaderScroll(0, 0);
             }
 		}
 	}
@@ -170,7 +181,7 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 
 		// If the ListView header loading layout is showing, then we need to
 		// flip so that the original one is showing instead
-		if (listViewLoadingLayout.getVisibility() == View.VISIBLE) {
+		if (null != listViewLoadingLayout && listViewLoadingLayout.getVisibility() == View.VISIBLE) {
 
 			// Set our Original View to Visible
 			originalLoadingLayout.showInvisibleViews();
@@ -193,6 +204,13 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 		super.onReset();
 	}
 
+	@Override
+	protected void onRefreshableViewDataChanged(State state) {
+		if (null != myDataSetObservor) {
+			myDataSetObservor.reconcile(state);
+		}
+	}
+
 	@Override
 	protected LoadingLayoutProxy createLoadingLayoutProxy(final boolean includeStart, final boolean includeEnd) {
 		LoadingLayoutProxy proxy = super.createLoadingLayoutProxy(includeStart, includeEnd);
@@ -200,11 +218,27 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 		if (mListViewExtrasEnabled) {
 			final Mode mode = getMode();
 
+			// Don't force the ListView's Loading Layouts to be created, just
+			// record any calls until they are
 			if (includeStart && mode.showHeaderLoadingLayout()) {
-				proxy.addLayout(mHeaderLoadingView);
+				if (null != mHeaderLoadingView) {
+					proxy.addLayout(mHeaderLoadingView);
+				} else {
+					if (null == mPendingHeaderLoadingView) {
+						mPendingHeaderLoadingView = new PendingLoadingLayout();
+					}
+					proxy.addPendingLayout(mPendingHeaderLoadingView);
+				}
 			}
 			if (includeEnd && mode.showFooterLoadingLayout()) {
-				proxy.addLayout(mFooterLoadingView);
+				if (null != mFooterLoadingView) {
+					proxy.addLayout(mFooterLoadingView);
+				} else {
+					if (null == mPendingFooterLoadingView) {
+						mPendingFooterLoadingView = new PendingLoadingLayout();
+					}
+					proxy.addPendingLayout(mPendingFooterLoadingView);
+				}
 			}
 		}
 
@@ -237,20 +271,15 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 		mListViewExtrasEnabled = a.getBoolean(R.styleable.PullToRefresh_ptrListViewExtrasEnabled, true);
 
 		if (mListViewExtrasEnabled) {
-			final FrameLayout.LayoutParams lp = new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT,
-					FrameLayout.LayoutParams.WRAP_CONTENT, Gravity.CENTER_HORIZONTAL);
-
-			// Create Loading Views ready for use later
-			FrameLayout frame = new FrameLayout(getContext());
-			mHeaderLoadingView = createLoadingLayout(getContext(), Mode.PULL_FROM_START, a);
-			mHeaderLoadingView.setVisibility(View.GONE);
-			frame.addView(mHeaderLoadingView, lp);
-			mRefreshableView.addHeaderView(frame, null, false);
+			/**
+			 * Create the frames for the Loading Views now, as ListView Header
+			 * Views need to be added before the Adapter is set. The Loading
+			 * Views themselves are only created once they're first needed.
+			 */
+			mLvHeaderLoadingFrame = new FrameLayout(getContext());
+			mRefreshableView.addHeaderView(mLvHeaderLoadingFrame, null, false);
 
 			mLvFooterLoadingFrame = new FrameLayout(getContext());
-			mFooterLoadingView = createLoadingLayout(getContext(), Mode.PULL_FROM_END, a);
-			mFooterLoadingView.setVisibility(View.GONE);
-			mLvFooterLoadingFrame.addView(mFooterLoadingView, lp);
 
 			/**
 			 * If the value for Scrolling While Refreshing hasn't been
@@ -392,57 +421,67 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 		}
 		
 		private void checkEmptyChangeAndToggleIfNecessary() {
-            // This is a hack to make sure that if the progress bar happens to be animating
-            // (in the middle of a smoothScrollTo) when data set goes from empty to non-empty,
-            // we don't show the non-empty progress bar and attempt to scroll us where we should
-            // be, only to be overridden by the smoothScrollTo currently running. That would
-            // lead to a white space above the non-empty ListView progress bar because it was
-            // scrolling us to show that the empty ListView progress bar but we hid it, and
-            // tried to scroll it where it should be, but like I said since it was in the middle
-            // of smoothScrollTo it got overridden. The reason I'm doing a hack is to CORRECTLY
-            // fix this would be too much work... you would have to order ALL operations, so
-            // like a Handler or something. His code is not thread-safe, and issues like this
-            // are probably still in the code somewhere which is perhaps one reason he abanonded
-            // this project.
-            postDelayed(new Runnable() {
-                public void run() {
-                    switch (mState) {
-                        case RESET:
-                            if (DEBUG) Log.v(LOG_TAG, "RESET");
-                            onReset();
-                            break;
-                        case REFRESHING:
-                        case MANUAL_REFRESHING:
-                            if (DEBUG) Log.v(LOG_TAG, "REFRESHING");
-                            
-                            boolean isEmptyHeaderVisible = (getHeaderLayout().getVisibility() == View.VISIBLE);
-                            boolean isNonEmptyHeaderVisible = (mHeaderLoadingView.getVisibility() == View.VISIBLE);
-                            boolean isAdapterEmpty = adapter.isEmpty();
-
-                            if (DEBUG) Log.v(LOG_TAG, "isEmptyHeaderVisible = " + isEmptyHeaderVisible + ", isNonEmptyHeaderVisible = " + isNonEmptyHeaderVisible + ", isAdapterEmpty = " + isAdapterEmpty);
-                            if (isEmptyHeaderVisible &&
-                                !isNonEmptyHeaderVisible &&
-                                !isAdapterEmpty) {
-                                if (DEBUG) Log.v(LOG_TAG, "toggle it from empty to non-empty!");
-                                toggleLoadingLayoutsForEmptyChange(isAdapterEmpty);
-                            } else if (isNonEmptyHeaderVisible &&
-                                       !isEmptyHeaderVisible &&
-                                       isAdapterEmpty) {
-                                if (DEBUG) Log.v(LOG_TAG, "toggle it from non-empty to empty!");
-                                toggleLoadingLayoutsForEmptyChange(isAdapterEmpty);
-                            } else {
-                                if (DEBUG) Log.v(LOG_TAG, "no toggling to do!");
-                            }
-                            
-                            break;
+            // The toggle itself is done in reconcile(). Notifications are
+            // coalesced into one per frame, and held back until any running
+            // smoothScrollTo has finished. Otherwise we'd show the non-empty
+            // progress bar and scroll to it, only to be overridden by the running
+            // animation, leaving a white space above the ListView.
+            notifyRefreshableViewDataChanged();
+		}
 
+		/**
+		 * Swaps the real/fake header views if the adapter has become empty or
+		 * non-empty. Called through
+		 * {@link PullToRefreshListView#onRefreshableViewDataChanged(State)}.
+		 */
+		void reconcile(State state) {
+            switch (state) {
+                case RESET:
+                    // Streaming adapters notify on every flush. Only reset if
+                    // a ListView Loading Layout or header scroll was left
+                    // behind, and never in the middle of a gesture
+                    if (isBeingDragged() || isAtRest()) {
+                        break;
+                    }
+                    if (DEBUG) Log.v(LOG_TAG, "RESET");
+                    onReset();
+                    break;
+                case REFRESHING:
+                case MANUAL_REFRESHING:
+                    if (DEBUG) Log.v(LOG_TAG, "REFRESHING");
+                    
+                    boolean isEmptyHeaderVisible = (getHeaderLayout().getVisibility() == View.VISIBLE);
+                    boolean isNonEmptyHeaderVisible = (null != mHeaderLoadingView && mHeaderLoadingView.getVisibility() == View.VISIBLE);
+                    boolean isAdapterEmpty = adapter.isEmpty();
+
+                    getEventLog().log(EventLog.HEADER_RECONCILE, isEmptyHeaderVisible ? 1 : 0,
+                            isNonEmptyHeaderVisible ? 1 : 0, isAdapterEmpty ? 1 : 0);
+                    if (isEmptyHeaderVisible &&
+                        !isNonEmptyHeaderVisible &&
+                        !isAdapterEmpty) {
+                        if (DEBUG) Log.v(LOG_TAG, "toggle it from empty to non-empty!");
+                        toggleLoadingLayoutsForEmptyChange(isAdapterEmpty);
+                    } else if (isNonEmptyHeaderVisible &&
+                               !isEmptyHeaderVisible &&
+                               isAdapterEmpty) {
+                        if (DEBUG) Log.v(LOG_TAG, "toggle it from non-empty to empty!");
+                        toggleLoadingLayoutsForEmptyChange(isAdapterEmpty);
+                    } else {
+                        if (DEBUG) Log.v(LOG_TAG, "no toggling to do!");
                     }
-                }
-            }, 500);
+                    
+                    break;
+
+            }
 		}
 		
+		private boolean isAtRest() {
+			return getHeaderScroll() == 0
+					&& (null == mHeaderLoadingView || mHeaderLoadingView.getVisibility() != View.VISIBLE)
+					&& (null == mFooterLoadingView || mFooterLoadingView.getVisibility() != View.VISIBLE);
+		}
+
 		private void toggleLoadingLayoutsForEmptyChange(boolean isEmpty) {
-			if (DEBUG) Log.v(LOG_TAG, "toggleLoadingLayoutsForEmptyChange isEmpty = " + isEmpty);
 			final LoadingLayout origLoadingView, listViewLoadingView, oppositeListViewLoadingView;
 			final int selection, scrollToY;
 			final int origLoadingViewVisibility;
@@ -453,17 +492,17 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 					if (DEBUG) Log.v(LOG_TAG, "PULL_FROM_END");
 					origLoadingView = getFooterLayout();
 					origLoadingViewVisibility = View.INVISIBLE;
-					listViewLoadingView = mFooterLoadingView;
+					listViewLoadingView = getFooterLoadingView();
 					oppositeListViewLoadingView = mHeaderLoadingView;
 					selection = mRefreshableView.getCount() - 1;
-					scrollToY = getScrollY() - getFooterSize();
+					scrollToY = getHeaderScroll() - getFooterSize();
 					break;
 				}
 				case PULL_FROM_START:
 				default: {
 					if (isEmpty) {
 						if (DEBUG) Log.v(LOG_TAG, "isEmpty!");
-						origLoadingView = mHeaderLoadingView;
+						origLoadingView = getHeaderLoadingView();
 						origLoadingViewVisibility = View.GONE;
 						listViewLoadingView = getHeaderLayout();
 						oppositeListViewLoadingView = mFooterLoadingView;
@@ -473,10 +512,10 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 						if (DEBUG) Log.v(LOG_TAG, "not isEmpty!");
 						origLoadingView = getHeaderLayout();
 						origLoadingViewVisibility = View.INVISIBLE;
-						listViewLoadingView = mHeaderLoadingView;
+						listViewLoadingView = getHeaderLoadingView();
 						oppositeListViewLoadingView = mFooterLoadingView;
 						selection = 0;
-						scrollToY = getScrollY() + getHeaderSize();
+						scrollToY = getHeaderScroll() + getHeaderSize();
 					}
 					break;
 				}
@@ -488,7 +527,9 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 			origLoadingView.hideAllViews();
 
 			// Make sure the opposite end is hidden too
-			oppositeListViewLoadingView.setVisibility(View.GONE);
+			if (null != oppositeListViewLoadingView) {
+				oppositeListViewLoadingView.setVisibility(View.GONE);
+			}
 
 			// Show the ListView Loading View and set it to refresh.
 			listViewLoadingView.setVisibility(View.VISIBLE);
@@ -501,7 +542,7 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 			// We scroll slightly so that the ListView's header/footer is at the
 			// same Y position as our normal header/footer
 			setHeaderScroll(scrollToY, 0);
-			if (DEBUG) Log.v(LOG_TAG, "scrollToY = " + scrollToY);
+			getEventLog().log(EventLog.EMPTY_TOGGLE, isEmpty ? 1 : 0, scrollToY);
 
 			// Make sure the ListView is scrolled to show the loading
 			// header/footer
@@ -511,8 +552,52 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 	
 	// New code from AgileMD
 	public LoadingLayout getHeaderLoadingView() {
+		if (null == mHeaderLoadingView && null != mLvHeaderLoadingFrame) {
+			mHeaderLoadingView = createListViewLoadingLayout(Mode.PULL_FROM_START, mLvHeaderLoadingFrame,
+					mPendingHeaderLoadingView);
+		}
 		return mHeaderLoadingView;
 	}
+
+	private LoadingLayout getFooterLoadingView() {
+		if (null == mFooterLoadingView && null != mLvFooterLoadingFrame) {
+			mFooterLoadingView = createListViewLoadingLayout(Mode.PULL_FROM_END, mLvFooterLoadingFrame,
+					mPendingFooterLoadingView);
+		}
+		return mFooterLoadingView;
+	}
+
+	private LoadingLayout createListViewLoadingLayout(Mode mode, FrameLayout frame, PendingLoadingLayout pending) {
+		final FrameLayout.LayoutParams lp = new FrameLayout.LayoutParams(FrameLayout.LayoutParams.MATCH_PARENT,
+				FrameLayout.LayoutParams.WRAP_CONTENT, Gravity.CENTER_HORIZONTAL);
+
+		LoadingLayout layout = createLoadingLayout(mode);
+		if (null != pending) {
+			pending.applyTo(layout);
+		}
+		layout.setVisibility(View.GONE);
+		frame.addView(layout, lp);
+
+		// Cached proxies only reach the layout through the pending one, so
+		// recreate them to hold it directly
+		invalidateLoadingLayoutProxies();
+		return layout;
+	}
+
+	@Override
+	protected void onPrewarmLoadingLayouts() {
+		super.onPrewarmLoadingLayouts();
+
+		if (mListViewExtrasEnabled) {
+			final Mode mode = getMode();
+			if (mode.showHeaderLoadingLayout()) {
+				getHeaderLoadingView();
+			}
+			if (mode.showFooterLoadingLayout()) {
+				getFooterLoadingView();
+			}
+		}
+	}
 	
 	// If mHeaderLayout (the fake header view on top of your true refreshable view)
 	// is visible, and mHeaderLoadingView (the true header view of your ListView)
@@ -528,8 +613,8 @@ public class PullToRefreshListView extends PullToRefreshAdapterViewBase<ListView
 	protected int getInitialYOffsetHeader() {
 		if (DEBUG) Log.v(LOG_TAG, "getInitialYOffsetHeader");
 		if (isRefreshing() &&
-			mHeaderLayout.getVisibility() == View.VISIBLE &&
-			mHeaderLoadingView.getVisibility() != View.VISIBLE) {
+			null != mHeaderLayout && mHeaderLayout.getVisibility() == View.VISIBLE &&
+			(null == mHeaderLoadingView || mHeaderLoadingView.getVisibility() != View.VISIBLE)) {
 			switch (mCurrentMode) {
 				case MANUAL_REFRESH_ONLY:
 				case PULL_FROM_END:
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library;
+
+import android.content.Context;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * A PullToRefresh View which wraps a vertically scrolling {@link RecyclerView}
+ * . The RecyclerView library is not bundled, so apps using this class need to
+ * depend on recyclerview-v7 22.2 or later themselves. That library needs API
+ * 7, so unlike the rest of this library, this class can't be used on API 4 to
+ * 6.
+ * <p/>
+ * With a vertical {@link LinearLayoutManager}, whether the RecyclerView is at
+ * an edge is worked out from the first and last attached children only, so it
+ * doesn't depend on how many children are attached. Other LayoutManagers fall
+ * back to {@link ViewCompat#canScrollVertically(View, int)}.
+ * <p/>
+ * RecyclerView stops a fling dead at an edge and only passes what's left of it
+ * to its private edge effects, so the distance the fling would have
+ * overscrolled can't be seen. The header is bounced out by the last scroll
+ * delta before the edge instead, which gives a smaller bounce than
+ * {@link OverscrollHelper} gives the other Views. With
+ * {@link OverScrollStyle#MOMENTUM}, that delta gives the fling's velocity, so
+ * the bounce is close to the other Views'.
+ */
+public class PullToRefreshRecyclerView extends PullToRefreshBase<RecyclerView> {
+
+	private RecyclerView.OnScrollListener mOnScrollListener;
+
+	public PullToRefreshRecyclerView(Context context) {
+		super(context);
+	}
+
+	public PullToRefreshRecyclerView(Context context, AttributeSet attrs) {
+		super(context, attrs);
+	}
+
+	public PullToRefreshRecyclerView(Context context, Mode mode) {
+		super(context, mode);
+	}
+
+	public PullToRefreshRecyclerView(Context context, Mode mode, AnimationStyle style) {
+		super(context, mode, style);
+	}
+
+	@Override
+	public final Orientation getPullToRefreshScrollDirection() {
+		return Orientation.VERTICAL;
+	}
+
+	/**
+	 * Pass-through method for {@link RecyclerView#setOnScrollListener}. Kept
+	 * so that the listener is called after any overscroll has been handled.
+	 * Listeners can also be added to the RecyclerView directly, with
+	 * {@link RecyclerView#addOnScrollListener}.
+	 *
+	 * @param listener - Listener to be called when the RecyclerView scrolls
+	 */
+	public final void setOnScrollListener(RecyclerView.OnScrollListener listener) {
+		mOnScrollListener = listener;
+	}
+
+	@Override
+	protected RecyclerView createRefreshableView(Context context, AttributeSet attrs) {
+		RecyclerView recyclerView = new RecyclerView(context, attrs);
+		recyclerView.setId(R.id.recyclerview);
+		recyclerView.addOnScrollListener(new RecyclerScrollListener());
+		return recyclerView;
+	}
+
+	@Override
+	protected boolean isReadyForPullStart() {
+		final RecyclerView.LayoutManager layoutManager = mRefreshableView.getLayoutManager();
+		if (null == layoutManager || layoutManager.getItemCount() == 0) {
+			// Empty View can be pulled
+			return true;
+		}
+
+		if (isVerticalLinearLayoutManager(layoutManager)) {
+			final boolean reversed = ((LinearLayoutManager) layoutManager).getReverseLayout();
+			final int childCount = layoutManager.getChildCount();
+			if (childCount == 0) {
+				return false;
+			}
+
+			// Children are attached in adapter order, so the top child is at
+			// one end of the children, whichever way the list is laid out
+			final View topChild = layoutManager.getChildAt(reversed ? childCount - 1 : 0);
+			final int topPosition = reversed ? layoutManager.getItemCount() - 1 : 0;
+			return layoutManager.getPosition(topChild) == topPosition
+					&& layoutManager.getDecoratedTop(topChild) >= mRefreshableView.getPaddingTop();
+		}
+
+		// Other LayoutManagers don't keep their children in order, or scroll
+		// the other way
+		return !ViewCompat.canScrollVertically(mRefreshableView, -1);
+	}
+
+	@Override
+	protected boolean isReadyForPullEnd() {
+		final RecyclerView.LayoutManager layoutManager = mRefreshableView.getLayoutManager();
+		if (null == layoutManager || layoutManager.getItemCount() == 0) {
+			// Empty View can be pulled
+			return true;
+		}
+
+		if (isVerticalLinearLayoutManager(layoutManager)) {
+			final boolean reversed = ((LinearLayoutManager) layoutManager).getReverseLayout();
+			final int childCount = layoutManager.getChildCount();
+			if (childCount == 0) {
+				return false;
+			}
+
+			final View bottomChild = layoutManager.getChildAt(reversed ? 0 : childCount - 1);
+			final int bottomPosition = reversed ? 0 : layoutManager.getItemCount() - 1;
+			return layoutManager.getPosition(bottomChild) == bottomPosition
+					&& layoutManager.getDecoratedBottom(bottomChild) <= mRefreshableView.getHeight()
+							- mRefreshableView.getPaddingBottom();
+		}
+
+		return !ViewCompat.canScrollVertically(mRefreshableView, 1);
+	}
+
+	private static boolean isVerticalLinearLayoutManager(RecyclerView.LayoutManager layoutManager) {
+		return layoutManager instanceof LinearLayoutManager
+				&& ((LinearLayoutManager) layoutManager).getOrientation() == LinearLayoutManager.VERTICAL;
+	}
+
+	/**
+	 * Called whenever the RecyclerView scrolls, after any overscroll has been
+	 * handled. Subclasses can override this to have the header take part in
+	 * coordinated scrolling with other Views.
+	 *
+	 * @param dx - Horizontal distance scrolled, in pixels
+	 * @param dy - Vertical distance scrolled, in pixels
+	 * @param settling - true if the scroll is from a fling, rather than touch
+	 */
+	protected void onRefreshableViewScrolled(int dx, int dy, boolean settling) {
+		// NO-OP
+	}
+
+	/**
+	 * RecyclerView draws its own edge effects rather than calling
+	 * {@link View#overScrollBy}, so flings into an edge are detected here
+	 * instead. Each scroll delta of the fling at the edge is passed through to
+	 * {@link OverscrollHelper}, and the header is scrolled back once the
+	 * RecyclerView comes to rest. The deltas stop once the RecyclerView has
+	 * reached the edge, see the class documentation.
+	 */
+	final class RecyclerScrollListener extends RecyclerView.OnScrollListener {
+
+		private int mScrollState = RecyclerView.SCROLL_STATE_IDLE;
+
+		@Override
+		public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+			mScrollState = newState;
+
+			// With OverScrollStyle.MOMENTUM the header springs back by itself
+			if (newState == RecyclerView.SCROLL_STATE_IDLE && getState() == State.OVERSCROLLING
+					&& getOverScrollStyle() == OverScrollStyle.FOLLOW) {
+				setOverScrolling(false);
+			}
+
+			if (null != mOnScrollListener) {
+				mOnScrollListener.onScrollStateChanged(recyclerView, newState);
+			}
+		}
+
+		@Override
+		public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+			final boolean settling = mScrollState == RecyclerView.SCROLL_STATE_SETTLING;
+
+			// Keep feeding deltas once overscrolling, so that the header
+			// follows the whole fling rather than just its first frame
+			if (settling) {
+				if (dy < 0 && isReadyForPullStart()) {
+					OverscrollHelper.overScrollBy(PullToRefreshRecyclerView.this, 0, 0, dy, 0, false);
+				} else if (dy > 0 && isReadyForPullEnd()) {
+					final int scrollRange = Math.max(0, mRefreshableView.computeVerticalScrollRange()
+							- mRefreshableView.computeVerticalScrollExtent());
+					OverscrollHelper.overScrollBy(PullToRefreshRecyclerView.this, 0, 0, dy, scrollRange,
+							scrollRange, false);
+				}
+			}
+
+			onRefreshableViewScrolled(dx, dy, settling);
+
+			if (null != mOnScrollListener) {
+				mOnScrollListener.onScrolled(recyclerView, dx, dy);
+			}
+		}
+	}
+}
@@ -41,6 +41,7 @@ public class PullToRefreshWebView extends PullToRefreshBase<WebView> {
 		@Override
 		public void onProgressChanged(WebView view, int newProgress) {
 			if (newProgress == 100) {
+				onPageLoaded(view);
 				onRefreshComplete();
 			}
 		}
@@ -116,6 +117,18 @@ public class PullToRefreshWebView extends PullToRefreshBase<WebView> {
 		return mRefreshableView.getScrollY() >= (exactContentHeight - mRefreshableView.getHeight());
 	}
 
+	/**
+	 * Called when the WebView's page has finished loading, as reported to the
+	 * default WebChromeClient. It isn't called if you replace that client with
+	 * your own via {@link WebView#setWebChromeClient(WebChromeClient)}, so a
+	 * subclass should then call it from your client's
+	 * <code>onProgressChanged()</code> once progress reaches 100.
+	 * 
+	 * @param webView - The Refreshable View
+	 */
+	protected void onPageLoaded(WebView webView) {
+	}
+
 	@Override
 	protected void onPtrRestoreInstanceState(Bundle savedInstanceState) {
 		super.onPtrRestoreInstanceState(savedInstanceState);
@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library;
+
+/**
+ * The refresh state logic of {@link PullToRefreshBase}, kept free of any
+ * Android dependencies. States are plain int codes, each matching one
+ * {@link PullToRefreshBase.State}, so that this compiles and runs on a plain
+ * JVM.
+ * <p/>
+ * Everything that can change the state is posted as an {@link Event}. Events
+ * go through a single FIFO queue, so an event posted while another is being
+ * handled (for instance from a listener) is only handled once the first one
+ * has completely finished. The results are passed back to the View as
+ * commands through {@link Callbacks}.
+ * <p/>
+ * Posting an event doesn't allocate. This class is not thread-safe, all events
+ * must be posted from the UI thread.
+ */
+final class RefreshStateMachine {
+
+	static enum Event {
+		/**
+		 * Move directly to a state. Arg is built with
+		 * {@link RefreshStateMachine#transitionArg(int, boolean, boolean)}.
+		 */
+		TRANSITION,
+
+		/**
+		 * The user has dragged the View. Arg is {@link #FLAG_PAST_THRESHOLD}
+		 * if the Loading Layout has been pulled fully into view.
+		 */
+		DRAG,
+
+		/**
+		 * The user has let go. Arg is a combination of
+		 * {@link #FLAG_REFRESH_ALLOWED} and {@link #FLAG_FLUNG}.
+		 */
+		RELEASE,
+
+		/**
+		 * Refresh was requested by the app. Arg is a combination of
+		 * {@link #FLAG_DO_SCROLL} and {@link #FLAG_SMOOTH_SCROLL}.
+		 */
+		MANUAL_REFRESH,
+
+		/**
+		 * The app has finished refreshing.
+		 */
+		COMPLETE,
+
+		/**
+		 * A fling has started (arg 1) or stopped (arg 0) overscrolling, or
+		 * has overscrolled far enough to refresh (arg
+		 * {@link RefreshStateMachine#OVERSCROLL_REFRESH}).
+		 */
+		OVERSCROLL,
+
+		/**
+		 * The Refreshable View's data has changed.
+		 */
+		DATA_CHANGED,
+
+		/**
+		 * A header scroll animation has started.
+		 */
+		SCROLL_STARTED,
+
+		/**
+		 * A header scroll animation has finished, or was stopped.
+		 */
+		SCROLL_FINISHED;
+
+		static final Event[] VALUES = values();
+	}
+
+	static final int STATE_RESET = 0;
+	static final int STATE_PULL_TO_REFRESH = 1;
+	static final int STATE_RELEASE_TO_REFRESH = 2;
+	static final int STATE_REFRESHING = 3;
+	static final int STATE_MANUAL_REFRESHING = 4;
+	static final int STATE_OVERSCROLLING = 5;
+	static final int STATE_COUNT = 6;
+
+	static final int FLAG_PAST_THRESHOLD = 0x1;
+	static final int FLAG_REFRESH_ALLOWED = 0x1;
+	static final int FLAG_FLUNG = 0x2;
+	static final int FLAG_DO_SCROLL = 0x1;
+	static final int FLAG_SMOOTH_SCROLL = 0x2;
+	static final int OVERSCROLL_REFRESH = 2;
+
+	static interface Callbacks {
+
+		/**
+		 * The state has changed, the View should update to match.
+		 */
+		void onStateChanged(int previousState, int newState, boolean doScroll, boolean smoothScroll);
+
+		/**
+		 * The user has let go while the View is refreshing.
+		 */
+		void onReleasedWhileRefreshing();
+
+		/**
+		 * The Refreshable View's data has changed, and no scroll animation is
+		 * running. The View should reconcile its Loading Layouts.
+		 */
+		void onDataChanged(int state);
+	}
+
+	/**
+	 * Bit masks of the states each state can move to, indexed by state.
+	 */
+	private static final int[] TRANSITIONS = new int[STATE_COUNT];
+
+	static {
+		allow(STATE_RESET, STATE_RESET, STATE_PULL_TO_REFRESH, STATE_MANUAL_REFRESHING, STATE_OVERSCROLLING);
+		allow(STATE_PULL_TO_REFRESH, STATE_RESET, STATE_RELEASE_TO_REFRESH, STATE_REFRESHING,
+				STATE_MANUAL_REFRESHING);
+		allow(STATE_RELEASE_TO_REFRESH, STATE_RESET, STATE_PULL_TO_REFRESH, STATE_REFRESHING,
+				STATE_MANUAL_REFRESHING);
+		allow(STATE_REFRESHING, STATE_RESET);
+		allow(STATE_MANUAL_REFRESHING, STATE_RESET);
+		allow(STATE_OVERSCROLLING, STATE_RESET, STATE_PULL_TO_REFRESH, STATE_REFRESHING, STATE_MANUAL_REFRESHING,
+				STATE_OVERSCROLLING);
+	}
+
+	private static void allow(int from, int... to) {
+		for (int state : to) {
+			TRANSITIONS[from] |= 1 << state;
+		}
+	}
+
+	/**
+	 * @return true if the View is allowed to move from state <var>from</var>
+	 *         to state <var>to</var>.
+	 */
+	static boolean canTransition(int from, int to) {
+		return (TRANSITIONS[from] & (1 << to)) != 0;
+	}
+
+	private static final int EVENT_BITS = 4;
+	private static final int EVENT_MASK = (1 << EVENT_BITS) - 1;
+
+	static int transitionArg(int state, boolean doScroll, boolean smoothScroll) {
+		return (state << 2) | (doScroll ? FLAG_DO_SCROLL : 0) | (smoothScroll ? FLAG_SMOOTH_SCROLL : 0);
+	}
+
+	private final Callbacks mCallbacks;
+
+	private int mState = STATE_RESET;
+	private boolean mScrolling = false;
+	private boolean mDataChangePending = false;
+
+	// Ring buffer of packed events: (arg << EVENT_BITS) | event.ordinal()
+	private int[] mQueue = new int[16];
+	private int mQueueHead = 0;
+	private int mQueueSize = 0;
+	private boolean mDraining = false;
+
+	RefreshStateMachine(Callbacks callbacks) {
+		mCallbacks = callbacks;
+	}
+
+	int getState() {
+		return mState;
+	}
+
+	boolean isRefreshing() {
+		return mState == STATE_REFRESHING || mState == STATE_MANUAL_REFRESHING;
+	}
+
+	boolean isScrolling() {
+		return mScrolling;
+	}
+
+	void post(Event event) {
+		post(event, 0);
+	}
+
+	/**
+	 * Posts an event. If no other event is currently being handled, it is
+	 * handled before this method returns. Otherwise it is handled after all
+	 * previously posted events.
+	 */
+	void post(Event event, int arg) {
+		enqueue((arg << EVENT_BITS) | event.ordinal());
+
+		if (mDraining) {
+			return;
+		}
+
+		mDraining = true;
+		try {
+			while (mQueueSize > 0) {
+				final int packed = mQueue[mQueueHead];
+				mQueueHead = (mQueueHead + 1) & (mQueue.length - 1);
+				mQueueSize--;
+
+				handle(Event.VALUES[packed & EVENT_MASK], packed >>> EVENT_BITS);
+			}
+		} finally {
+			mDraining = false;
+			mQueueHead = mQueueSize = 0;
+		}
+	}
+
+	private void enqueue(int packed) {
+		if (mQueueSize == mQueue.length) {
+			// Only happens if listeners keep posting from within callbacks
+			int[] queue = new int[mQueue.length * 2];
+			for (int i = 0; i < mQueueSize; i++) {
+				queue[i] = mQueue[(mQueueHead + i) & (mQueue.length - 1)];
+			}
+			mQueue = queue;
+			mQueueHead = 0;
+		}
+		mQueue[(mQueueHead + mQueueSize) & (mQueue.length - 1)] = packed;
+		mQueueSize++;
+	}
+
+	private void handle(Event event, int arg) {
+		switch (event) {
+			case TRANSITION:
+				moveTo(arg >>> 2, (arg & FLAG_DO_SCROLL) != 0, (arg & FLAG_SMOOTH_SCROLL) != 0);
+				break;
+
+			case DRAG: {
+				if (!isRefreshing()) {
+					final boolean pastThreshold = (arg & FLAG_PAST_THRESHOLD) != 0;
+					if (mState != STATE_PULL_TO_REFRESH && !pastThreshold) {
+						moveTo(STATE_PULL_TO_REFRESH, true, true);
+					} else if (mState == STATE_PULL_TO_REFRESH && pastThreshold) {
+						moveTo(STATE_RELEASE_TO_REFRESH, true, true);
+					}
+				}
+				break;
+			}
+
+			case RELEASE: {
+				final boolean readyToRefresh = mState == STATE_RELEASE_TO_REFRESH
+						|| (mState == STATE_PULL_TO_REFRESH && (arg & FLAG_FLUNG) != 0);
+				if (readyToRefresh && (arg & FLAG_REFRESH_ALLOWED) != 0) {
+					moveTo(STATE_REFRESHING, true, true);
+				} else if (isRefreshing()) {
+					mCallbacks.onReleasedWhileRefreshing();
+				} else {
+					moveTo(STATE_RESET, true, true);
+				}
+				break;
+			}
+
+			case MANUAL_REFRESH:
+				if (!isRefreshing()) {
+					moveTo(STATE_MANUAL_REFRESHING, (arg & FLAG_DO_SCROLL) != 0, (arg & FLAG_SMOOTH_SCROLL) != 0);
+				}
+				break;
+
+			case COMPLETE:
+				if (isRefreshing()) {
+					moveTo(STATE_RESET, true, true);
+				}
+				break;
+
+			case OVERSCROLL:
+				if (arg == OVERSCROLL_REFRESH) {
+					if (!isRefreshing()) {
+						moveTo(STATE_OVERSCROLLING, false, false);
+						moveTo(STATE_REFRESHING, true, true);
+					}
+				} else if (arg != 0) {
+					moveTo(STATE_OVERSCROLLING, true, true);
+				} else if (mState == STATE_OVERSCROLLING) {
+					moveTo(STATE_RESET, true, true);
+				}
+				break;
+
+			case DATA_CHANGED:
+				// Reconciling while the header is animating would be undone by
+				// the animation, so wait for it to finish
+				if (mScrolling) {
+					mDataChangePending = true;
+				} else {
+					mCallbacks.onDataChanged(mState);
+				}
+				break;
+
+			case SCROLL_STARTED:
+				mScrolling = true;
+				break;
+
+			case SCROLL_FINISHED:
+				mScrolling = false;
+				if (mDataChangePending) {
+					mDataChangePending = false;
+					mCallbacks.onDataChanged(mState);
+				}
+				break;
+		}
+	}
+
+	private void moveTo(int state, boolean doScroll, boolean smoothScroll) {
+		if (!canTransition(mState, state)) {
+			return;
+		}
+
+		final int previousState = mState;
+		mState = state;
+		mCallbacks.onStateChanged(previousState, state, doScroll, smoothScroll);
+	}
+}
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library;
+
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import com.handmark.pulltorefresh.library.PullToRefreshBase.Orientation;
+import com.handmark.pulltorefresh.library.internal.ViewCompat;
+
+/**
+ * Orientation specific accessors, so that the touch and scroll paths don't
+ * need to switch on {@link PullToRefreshBase#getPullToRefreshScrollDirection()}
+ * every time they're called. Each PullToRefreshBase resolves its ScrollAxis
+ * once, when it is created.
+ */
+abstract class ScrollAxis {
+
+	static final ScrollAxis VERTICAL = new Vertical();
+	static final ScrollAxis HORIZONTAL = new Horizontal();
+
+	static ScrollAxis forOrientation(Orientation orientation) {
+		switch (orientation) {
+			case HORIZONTAL:
+				return HORIZONTAL;
+			case VERTICAL:
+			default:
+				return VERTICAL;
+		}
+	}
+
+	/**
+	 * @return The value along this axis
+	 */
+	abstract float select(float x, float y);
+
+	/**
+	 * @return The value along this axis
+	 */
+	abstract int select(int x, int y);
+
+	/**
+	 * @return The value across this axis
+	 */
+	abstract float selectOpposite(float x, float y);
+
+	abstract void scrollTo(View view, int value);
+
+	/**
+	 * Sets the translation along this axis. Does nothing before HONEYCOMB.
+	 */
+	abstract void translateTo(View view, int value);
+
+	abstract int getSize(View view);
+
+	/**
+	 * Sets the size along this axis in <var>lp</var>.
+	 * 
+	 * @return true if it was changed
+	 */
+	abstract boolean setLayoutSize(ViewGroup.LayoutParams lp, int size);
+
+	/**
+	 * Sets the margin at the start or end of this axis in <var>lp</var>.
+	 * 
+	 * @return true if it was changed
+	 */
+	abstract boolean setLayoutMargin(ViewGroup.MarginLayoutParams lp, int margin, boolean start);
+
+	/**
+	 * @return The velocity along this axis, as last computed by
+	 *         {@link VelocityTracker#computeCurrentVelocity(int, float)}.
+	 */
+	abstract float getVelocity(VelocityTracker tracker);
+
+	/**
+	 * @return The {@link LinearLayout} orientation which lays children out
+	 *         along this axis
+	 */
+	abstract int getLinearLayoutOrientation();
+
+	/**
+	 * @return LayoutParams for a Loading Layout, which wraps its content along
+	 *         this axis and fills its parent across it
+	 */
+	abstract LinearLayout.LayoutParams createLoadingLayoutParams();
+
+	/**
+	 * @return The View.SCROLL_AXIS_* flag for this axis
+	 */
+	abstract int getNestedScrollAxis();
+
+	static final class Vertical extends ScrollAxis {
+
+		@Override
+		float select(float x, float y) {
+			return y;
+		}
+
+		@Override
+		int select(int x, int y) {
+			return y;
+		}
+
+		@Override
+		float selectOpposite(float x, float y) {
+			return x;
+		}
+
+		@Override
+		void scrollTo(View view, int value) {
+			view.scrollTo(0, value);
+		}
+
+		@Override
+		void translateTo(View view, int value) {
+			ViewCompat.setTranslationY(view, value);
+		}
+
+		@Override
+		int getSize(View view) {
+			return view.getHeight();
+		}
+
+		@Override
+		boolean setLayoutSize(ViewGroup.LayoutParams lp, int size) {
+			if (lp.height == size) {
+				return false;
+			}
+			lp.height = size;
+			return true;
+		}
+
+		@Override
+		boolean setLayoutMargin(ViewGroup.MarginLayoutParams lp, int margin, boolean start) {
+			if (start) {
+				if (lp.topMargin == margin) {
+					return false;
+				}
+				lp.topMargin = margin;
+			} else {
+				if (lp.bottomMargin == margin) {
+					return false;
+				}
+				lp.bottomMargin = margin;
+			}
+			return true;
+		}
+
+		@Override
+		float getVelocity(VelocityTracker tracker) {
+			return tracker.getYVelocity();
+		}
+
+		@Override
+		int getLinearLayoutOrientation() {
+			return LinearLayout.VERTICAL;
+		}
+
+		@Override
+		LinearLayout.LayoutParams createLoadingLayoutParams() {
+			return new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT,
+					LinearLayout.LayoutParams.WRAP_CONTENT);
+		}
+
+		@Override
+		int getNestedScrollAxis() {
+			return View.SCROLL_AXIS_VERTICAL;
+		}
+	}
+
+	static final class Horizontal extends ScrollAxis {
+
+		@Override
+		float select(float x, float y) {
+			return x;
+		}
+
+		@Override
+		int select(int x, int y) {
+			return x;
+		}
+
+		@Override
+		float selectOpposite(float x, float y) {
+			return y;
+		}
+
+		@Override
+		void scrollTo(View view, int value) {
+			view.scrollTo(value, 0);
+		}
+
+		@Override
+		void translateTo(View view, int value) {
+			ViewCompat.setTranslationX(view, value);
+		}
+
+		@Override
+		int getSize(View view) {
+			return view.getWidth();
+		}
+
+		@Override
+		boolean setLayoutSize(ViewGroup.LayoutParams lp, int size) {
+			if (lp.width == size) {
+				return false;
+			}
+			lp.width = size;
+			return true;
+		}
+
+		@Override
+		boolean setLayoutMargin(ViewGroup.MarginLayoutParams lp, int margin, boolean start) {
+			if (start) {
+				if (lp.leftMargin == margin) {
+					return false;
+				}
+				lp.leftMargin = margin;
+			} else {
+				if (lp.rightMargin == margin) {
+					return false;
+				}
+				lp.rightMargin = margin;
+			}
+			return true;
+		}
+
+		@Override
+		float getVelocity(VelocityTracker tracker) {
+			return tracker.getXVelocity();
+		}
+
+		@Override
+		int getLinearLayoutOrientation() {
+			return LinearLayout.HORIZONTAL;
+		}
+
+		@Override
+		LinearLayout.LayoutParams createLoadingLayoutParams() {
+			return new LinearLayout.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT,
+					LinearLayout.LayoutParams.MATCH_PARENT);
+		}
+
+		@Override
+		int getNestedScrollAxis() {
+			return View.SCROLL_AXIS_HORIZONTAL;
+		}
+	}
+}
@@ -17,8 +17,13 @@ package com.handmark.pulltorefresh.library.extras;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.webkit.JavascriptInterface;
 import android.webkit.WebView;
 
 import com.handmark.pulltorefresh.library.PullToRefreshWebView;
@@ -37,12 +42,14 @@ import com.handmark.pulltorefresh.library.PullToRefreshWebView;
  * </ul>
  * <p/>
  * <p/>
- * The way this call works is that when a PullToRefresh gesture is in action,
- * the following Javascript methods will be called:
+ * The way this call works is that once the page has loaded, a small script is
+ * injected which calls the following Javascript methods whenever the page
+ * scrolls (at most once per animation frame):
  * <code>isReadyForPullDown()</code> and <code>isReadyForPullUp()</code>, it is
  * your job to calculate whether the view is in a state where a PullToRefresh
- * can happen, and return the result via the callback mechanism. An example can
- * be seen below:
+ * can happen, and return the result via the callback mechanism. The last
+ * results are cached, so no Javascript is run while handling touch events. An
+ * example can be seen below:
  * <p/>
  * 
  * <pre>
@@ -57,13 +64,38 @@ import com.handmark.pulltorefresh.library.PullToRefreshWebView;
  * }
  * </pre>
  * 
+ * <p/>
+ * The script is injected from {@link #onPageLoaded(WebView)}, which is only
+ * called by the default WebChromeClient. If you set your own WebChromeClient,
+ * the readiness checks inject it instead, and until it responds for the
+ * current page each check evaluates both methods, as older versions did. To
+ * avoid that, subclass and call {@link #onPageLoaded(WebView)} from your
+ * client's <code>onProgressChanged()</code> once progress reaches 100.
+ * 
  * @author Chris Banes
  */
 public class PullToRefreshWebView2 extends PullToRefreshWebView {
 
 	static final String JS_INTERFACE_PKG = "ptr";
-	static final String DEF_JS_READY_PULL_DOWN_CALL = "javascript:isReadyForPullDown();";
-	static final String DEF_JS_READY_PULL_UP_CALL = "javascript:isReadyForPullUp();";
+
+	/**
+	 * Calls the page's readiness functions once now, and then again whenever
+	 * the page (or any element in it) scrolls or is resized. Calls are
+	 * throttled to one per animation frame. Injecting it again on the same page
+	 * just calls the readiness functions.
+	 */
+	static final String JS_READY_FOR_PULL_OBSERVER = "(function(){"
+			+ "if(window.__ptrObserver){window.__ptrObserver();return;}"
+			+ "var p=false;"
+			+ "var raf=window.requestAnimationFrame||function(f){return setTimeout(f,16);};"
+			+ "function c(){p=false;"
+			+ "if(typeof isReadyForPullDown==='function')isReadyForPullDown();"
+			+ "if(typeof isReadyForPullUp==='function')isReadyForPullUp();}"
+			+ "window.__ptrObserver=c;"
+			+ "function s(){if(!p){p=true;raf(c);}}"
+			+ "window.addEventListener('scroll',s,true);"
+			+ "window.addEventListener('resize',s,false);"
+			+ "c();})();";
 
 	public PullToRefreshWebView2(Context context) {
 		super(context);
@@ -81,6 +113,13 @@ public class PullToRefreshWebView2 extends PullToRefreshWebView {
 	private final AtomicBoolean mIsReadyForPullDown = new AtomicBoolean(false);
 	private final AtomicBoolean mIsReadyForPullUp = new AtomicBoolean(false);
 
+	/**
+	 * Whether the observer script has responded since it was last injected
+	 * for mObservedUrl. Only mHasJsResponse is touched off the UI thread.
+	 */
+	private final AtomicBoolean mHasJsResponse = new AtomicBoolean(false);
+	private String mObservedUrl;
+
 	@Override
 	protected WebView createRefreshableView(Context context, AttributeSet attrs) {
 		WebView webView = super.createRefreshableView(context, attrs);
@@ -94,26 +133,67 @@ public class PullToRefreshWebView2 extends PullToRefreshWebView {
 
 	@Override
 	protected boolean isReadyForPullStart() {
-		// Call Javascript...
-		getRefreshableView().loadUrl(DEF_JS_READY_PULL_DOWN_CALL);
-
-		// Response will be given to JsValueCallback, which will update
-		// mIsReadyForPullDown
+		checkObserver();
 
+		// Kept up to date by the observer script, via JsValueCallback
 		return mIsReadyForPullDown.get();
 	}
 
 	@Override
 	protected boolean isReadyForPullEnd() {
-		// Call Javascript...
-		getRefreshableView().loadUrl(DEF_JS_READY_PULL_UP_CALL);
-
-		// Response will be given to JsValueCallback, which will update
-		// mIsReadyForPullUp
+		checkObserver();
 
+		// Kept up to date by the observer script, via JsValueCallback
 		return mIsReadyForPullUp.get();
 	}
 
+	@Override
+	protected void onPageLoaded(WebView webView) {
+		super.onPageLoaded(webView);
+
+		mHasJsResponse.set(false);
+		injectObserver(webView);
+	}
+
+	@Override
+	protected void onReset() {
+		super.onReset();
+
+		// A refresh reloads the page, which removes the observer, so check
+		// that it's there again on the next pull
+		mHasJsResponse.set(false);
+	}
+
+	/**
+	 * Makes sure that the cached values belong to the current page. If the
+	 * observer hasn't responded for it, which happens when the app has set
+	 * its own WebChromeClient, it's injected again. That also evaluates both
+	 * readiness methods, as they used to be on every check.
+	 */
+	private void checkObserver() {
+		final WebView webView = getRefreshableView();
+		final String url = webView.getUrl();
+
+		if (!TextUtils.equals(url, mObservedUrl)) {
+			mObservedUrl = url;
+			mHasJsResponse.set(false);
+		}
+
+		if (!mHasJsResponse.get()) {
+			injectObserver(webView);
+		}
+	}
+
+	private void injectObserver(WebView webView) {
+		mObservedUrl = webView.getUrl();
+
+		if (VERSION.SDK_INT >= VERSION_CODES.KITKAT) {
+			SDK19.evaluateJavascript(webView, JS_READY_FOR_PULL_OBSERVER);
+		} else {
+			webView.loadUrl("javascript:" + JS_READY_FOR_PULL_OBSERVER);
+		}
+	}
+
 	/**
 	 * Used for response from Javascript
 	 * 
@@ -121,12 +201,24 @@ public class PullToRefreshWebView2 extends PullToRefreshWebView {
 	 */
 	final class JsValueCallback {
 
+		@JavascriptInterface
 		public void isReadyForPullUpResponse(boolean response) {
 			mIsReadyForPullUp.set(response);
+			mHasJsResponse.set(true);
 		}
 
+		@JavascriptInterface
 		public void isReadyForPullDownResponse(boolean response) {
 			mIsReadyForPullDown.set(response);
+			mHasJsResponse.set(true);
+		}
+	}
+
+	@TargetApi(19)
+	static class SDK19 {
+
+		public static void evaluateJavascript(WebView webView, String script) {
+			webView.evaluateJavascript(script, null);
 		}
 	}
 }
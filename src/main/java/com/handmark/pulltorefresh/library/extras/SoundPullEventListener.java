@@ -15,22 +15,42 @@
  *******************************************************************************/
 package com.handmark.pulltorefresh.library.extras;
 
-import java.util.HashMap;
-
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioManager;
 import android.media.MediaPlayer;
+import android.media.SoundPool;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
 import android.view.View;
 
 import com.handmark.pulltorefresh.library.PullToRefreshBase;
 import com.handmark.pulltorefresh.library.PullToRefreshBase.Mode;
 import com.handmark.pulltorefresh.library.PullToRefreshBase.State;
 
+/**
+ * Plays a sound for each Pull Event. Sounds are decoded ahead of time by a
+ * {@link SoundPool} when they are added, so playing one doesn't touch the disk
+ * or set up a decoder while the user is pulling.
+ */
 public class SoundPullEventListener<V extends View> implements PullToRefreshBase.OnPullEventListener<V> {
 
+	/**
+	 * By default only one sound plays at a time, a new sound stops the
+	 * previous one.
+	 */
+	static final int DEFAULT_MAX_STREAMS = 1;
+
+	private static final int NO_SOUND = 0;
+
 	private final Context mContext;
-	private final HashMap<State, Integer> mSoundMap;
+	private final int mMaxStreams;
+
+	private SoundPool mSoundPool;
 
-	private MediaPlayer mCurrentMediaPlayer;
+	// SoundPool sound IDs, indexed by State ordinal
+	private final int[] mSoundIds = new int[State.values().length];
 
 	/**
 	 * Constructor
@@ -38,15 +58,26 @@ public class SoundPullEventListener<V extends View> implements PullToRefreshBase
 	 * @param context - Context
 	 */
 	public SoundPullEventListener(Context context) {
+		this(context, DEFAULT_MAX_STREAMS);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param context - Context
+	 * @param maxStreams - Maximum number of sounds which can play at the same
+	 *            time. When exceeded, the oldest sound is stopped.
+	 */
+	public SoundPullEventListener(Context context, int maxStreams) {
 		mContext = context;
-		mSoundMap = new HashMap<State, Integer>();
+		mMaxStreams = Math.max(1, maxStreams);
 	}
 
 	@Override
 	public final void onPullEvent(PullToRefreshBase<V> refreshView, State event, Mode direction) {
-		Integer soundResIdObj = mSoundMap.get(event);
-		if (null != soundResIdObj) {
-			playSound(soundResIdObj.intValue());
+		final int soundId = mSoundIds[event.ordinal()];
+		if (NO_SOUND != soundId) {
+			playSound(soundId);
 		}
 	}
 
@@ -57,39 +88,85 @@ public class SoundPullEventListener<V extends View> implements PullToRefreshBase
 	 * <p/>
 	 * If you've already set a sound for a certain event, and add another sound
 	 * for that event, only the new sound will be played.
+	 * <p/>
+	 * The sound is decoded in the background straight away, so this should be
+	 * called well before the sound is needed.
 	 * 
 	 * @param event - The event for which the sound will be played.
 	 * @param resId - Resource Id of the sound file to be played (e.g.
 	 *            <var>R.raw.pull_sound</var>)
 	 */
 	public void addSoundEvent(State event, int resId) {
-		mSoundMap.put(event, resId);
+		if (null == mSoundPool) {
+			mSoundPool = createSoundPool(mMaxStreams);
+		}
+
+		final int index = event.ordinal();
+		if (NO_SOUND != mSoundIds[index]) {
+			mSoundPool.unload(mSoundIds[index]);
+		}
+		mSoundIds[index] = mSoundPool.load(mContext, resId, 1);
 	}
 
 	/**
 	 * Clears all of the previously set sounds and events.
 	 */
 	public void clearSounds() {
-		mSoundMap.clear();
+		for (int i = 0; i < mSoundIds.length; i++) {
+			if (NO_SOUND != mSoundIds[i]) {
+				mSoundPool.unload(mSoundIds[i]);
+				mSoundIds[i] = NO_SOUND;
+			}
+		}
+	}
+
+	/**
+	 * Releases the decoded sounds. The listener can still be used afterwards,
+	 * but any sounds need to be added again.
+	 */
+	public void release() {
+		clearSounds();
+		if (null != mSoundPool) {
+			mSoundPool.release();
+			mSoundPool = null;
+		}
 	}
 
 	/**
-	 * Gets the current (or last) MediaPlayer instance.
+	 * Gets the MediaPlayer which was last used to play a sound.
+	 * 
+	 * @return Always null. Sounds are now played through a {@link SoundPool},
+	 *         so there is no MediaPlayer. Callers must not dereference the
+	 *         result.
+	 * @deprecated Sounds are now played through a {@link SoundPool}, so this
+	 *             always returns null. It will be removed in a future release.
 	 */
+	@Deprecated
 	public MediaPlayer getCurrentMediaPlayer() {
-		return mCurrentMediaPlayer;
+		return null;
 	}
 
-	private void playSound(int resId) {
-		// Stop current player, if there's one playing
-		if (null != mCurrentMediaPlayer) {
-			mCurrentMediaPlayer.stop();
-			mCurrentMediaPlayer.release();
+	private void playSound(int soundId) {
+		// Does nothing if the sound hasn't finished loading yet
+		mSoundPool.play(soundId, 1f, 1f, 1, 0, 1f);
+	}
+
+	@SuppressWarnings("deprecation")
+	private static SoundPool createSoundPool(int maxStreams) {
+		if (VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP) {
+			return SDK21.createSoundPool(maxStreams);
+		} else {
+			return new SoundPool(maxStreams, AudioManager.STREAM_MUSIC, 0);
 		}
+	}
+
+	@TargetApi(21)
+	static class SDK21 {
 
-		mCurrentMediaPlayer = MediaPlayer.create(mContext, resId);
-		if (null != mCurrentMediaPlayer) {
-			mCurrentMediaPlayer.start();
+		public static SoundPool createSoundPool(int maxStreams) {
+			AudioAttributes attrs = new AudioAttributes.Builder().setUsage(AudioAttributes.USAGE_MEDIA)
+					.setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION).build();
+			return new SoundPool.Builder().setMaxStreams(maxStreams).setAudioAttributes(attrs).build();
 		}
 	}
 
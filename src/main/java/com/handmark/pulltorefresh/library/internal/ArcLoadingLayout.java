@@ -0,0 +1,341 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library.internal;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+
+import com.handmark.pulltorefresh.library.PullToRefreshBase.Mode;
+import com.handmark.pulltorefresh.library.PullToRefreshBase.Orientation;
+import com.handmark.pulltorefresh.library.R;
+
+/**
+ * A LoadingLayout which draws everything onto a single {@link ArcView}, rather
+ * than inflating an ImageView, ProgressBar and two TextViews. While pulling an
+ * arc with an arrow head grows with the pull distance, while refreshing the arc
+ * spins.
+ */
+@SuppressLint("ViewConstructor")
+public class ArcLoadingLayout extends LoadingLayout {
+
+	static final int ROTATION_ANIMATION_DURATION = 1200;
+
+	private final ArcView mArcView;
+
+	public ArcLoadingLayout(Context context, Mode mode, Orientation scrollDirection, LoadingLayoutAttributes attrs) {
+		this(context, mode, scrollDirection, attrs, new ArcView(context, scrollDirection, attrs));
+	}
+
+	private ArcLoadingLayout(Context context, Mode mode, Orientation scrollDirection, LoadingLayoutAttributes attrs,
+			ArcView arcView) {
+		super(context, mode, scrollDirection, attrs, arcView);
+		mArcView = arcView;
+
+		// The super constructor's reset() ran before mArcView was set
+		reset();
+	}
+
+	@Override
+	public void hideAllViews() {
+		if (View.VISIBLE == mArcView.getVisibility()) {
+			mArcView.setVisibility(View.INVISIBLE);
+		}
+	}
+
+	@Override
+	public void showInvisibleViews() {
+		if (View.INVISIBLE == mArcView.getVisibility()) {
+			mArcView.setVisibility(View.VISIBLE);
+		}
+	}
+
+	@Override
+	public void setLastUpdatedLabel(CharSequence label) {
+		mArcView.setSubLabel(label);
+	}
+
+	@Override
+	public void setTextTypeface(Typeface tf) {
+		mArcView.setTypeface(tf);
+	}
+
+	@Override
+	protected int getDefaultDrawableResId() {
+		// No drawable is used
+		return 0;
+	}
+
+	@Override
+	protected void onLoadingDrawableSet(Drawable imageDrawable) {
+		// NO-OP
+	}
+
+	@Override
+	protected void onPullImpl(float scaleOfLayout) {
+		mArcView.setPullProgress(scaleOfLayout);
+	}
+
+	@Override
+	protected float getMaximumPullScale() {
+		// The arc is complete once the layout has been fully pulled
+		return 1f;
+	}
+
+	@Override
+	protected void pullToRefreshImpl() {
+		mArcView.setLabel(getPullLabel());
+	}
+
+	@Override
+	protected void refreshingImpl() {
+		mArcView.setLabel(getRefreshingLabel());
+		mArcView.setRefreshing(true);
+	}
+
+	@Override
+	protected void releaseToRefreshImpl() {
+		mArcView.setLabel(getReleaseLabel());
+	}
+
+	@Override
+	protected void resetImpl() {
+		if (null != mArcView) {
+			mArcView.setLabel(getPullLabel());
+			mArcView.setRefreshing(false);
+			mArcView.setPullProgress(0f);
+		}
+	}
+
+	/**
+	 * Draws the arc, arrow head and labels. Everything which is drawn is
+	 * allocated up front, and the width of each label is only measured when
+	 * the label changes.
+	 */
+	static final class ArcView extends View {
+
+		static final float MAX_SWEEP_ANGLE = 270f;
+		static final float START_ANGLE = -90f;
+
+		private final boolean mShowLabels;
+
+		private final int mPaddingHorizontal, mPaddingVertical;
+		private final float mIndicatorSize;
+
+		private final Paint mArcPaint;
+		private final Path mArrowPath;
+		private final RectF mArcBounds;
+
+		private final TextPaint mLabelPaint;
+		private final TextPaint mSubLabelPaint;
+
+		private CharSequence mLabel;
+		private float mLabelWidth;
+		private CharSequence mSubLabel;
+		private float mSubLabelWidth;
+
+		private float mPullProgress;
+		private boolean mRefreshing;
+		private long mRefreshingStartTime;
+
+		ArcView(Context context, Orientation scrollDirection, LoadingLayoutAttributes attrs) {
+			super(context);
+
+			final Resources res = context.getResources();
+			mShowLabels = scrollDirection == Orientation.VERTICAL;
+			mPaddingHorizontal = res.getDimensionPixelSize(R.dimen.header_footer_left_right_padding);
+			mPaddingVertical = res.getDimensionPixelSize(R.dimen.header_footer_top_bottom_padding);
+			mIndicatorSize = res.getDimension(R.dimen.arc_indicator_size);
+
+			final float strokeWidth = res.getDimension(R.dimen.arc_indicator_stroke_width);
+			final int textColor = getTextColor(context, attrs.getHeaderTextColor());
+
+			mArcPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+			mArcPaint.setStyle(Paint.Style.STROKE);
+			mArcPaint.setStrokeCap(Paint.Cap.ROUND);
+			mArcPaint.setStrokeWidth(strokeWidth);
+			mArcPaint.setColor(textColor);
+
+			// The arc is inset so that the stroke fits within mIndicatorSize
+			final float radius = (mIndicatorSize - strokeWidth) / 2f - strokeWidth;
+			mArcBounds = new RectF(-radius, -radius, radius, radius);
+
+			// Arrow head, pointing clockwise from the 3 o'clock position
+			final float arrowSize = strokeWidth * 2f;
+			mArrowPath = new Path();
+			mArrowPath.moveTo(radius - arrowSize, 0f);
+			mArrowPath.lineTo(radius + arrowSize, 0f);
+			mArrowPath.lineTo(radius, arrowSize);
+			mArrowPath.close();
+
+			mLabelPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+			mLabelPaint.setTextSize(res.getDimension(R.dimen.arc_header_text_size));
+			mLabelPaint.setTypeface(Typeface.DEFAULT_BOLD);
+			mLabelPaint.setColor(textColor);
+			mLabelPaint.setTextAlign(Paint.Align.CENTER);
+
+			mSubLabelPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+			mSubLabelPaint.setTextSize(res.getDimension(R.dimen.arc_sub_header_text_size));
+			final ColorStateList subTextColors = attrs.getHeaderSubTextColor();
+			mSubLabelPaint.setColor(null != subTextColors ? subTextColors.getDefaultColor() : textColor);
+			mSubLabelPaint.setTextAlign(Paint.Align.CENTER);
+		}
+
+		void setLabel(CharSequence label) {
+			if (!TextUtils.equals(mLabel, label)) {
+				mLabel = label;
+				mLabelWidth = measure(mLabelPaint, label);
+				invalidate();
+			}
+		}
+
+		void setSubLabel(CharSequence label) {
+			final boolean wasEmpty = TextUtils.isEmpty(mSubLabel);
+			mSubLabel = label;
+			mSubLabelWidth = measure(mSubLabelPaint, label);
+
+			if (wasEmpty != TextUtils.isEmpty(label)) {
+				requestLayout();
+			}
+			invalidate();
+		}
+
+		void setTypeface(Typeface tf) {
+			mLabelPaint.setTypeface(tf);
+			mLabelWidth = measure(mLabelPaint, mLabel);
+			requestLayout();
+			invalidate();
+		}
+
+		void setPullProgress(float progress) {
+			progress = Math.max(0f, Math.min(1f, progress));
+			if (progress != mPullProgress) {
+				mPullProgress = progress;
+				if (!mRefreshing) {
+					invalidate();
+				}
+			}
+		}
+
+		void setRefreshing(boolean refreshing) {
+			if (refreshing != mRefreshing) {
+				mRefreshing = refreshing;
+				mRefreshingStartTime = AnimationUtils.currentAnimationTimeMillis();
+				invalidate();
+			}
+		}
+
+		@Override
+		protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+			final int contentSize;
+			if (mShowLabels) {
+				float textHeight = mLabelPaint.getFontSpacing();
+				if (!TextUtils.isEmpty(mSubLabel)) {
+					textHeight += mSubLabelPaint.getFontSpacing();
+				}
+				contentSize = (int) Math.ceil(Math.max(mIndicatorSize, textHeight));
+
+				final int width = mPaddingHorizontal * 2 + (int) Math.ceil(Math.max(mLabelWidth, mSubLabelWidth))
+						+ (int) Math.ceil(mIndicatorSize) * 2;
+				setMeasuredDimension(resolveSize(width, widthMeasureSpec),
+						resolveSize(contentSize + mPaddingVertical * 2, heightMeasureSpec));
+			} else {
+				contentSize = (int) Math.ceil(mIndicatorSize);
+				setMeasuredDimension(resolveSize(contentSize + mPaddingVertical * 2, widthMeasureSpec),
+						resolveSize(contentSize + mPaddingHorizontal * 2, heightMeasureSpec));
+			}
+		}
+
+		@Override
+		protected void onDraw(Canvas canvas) {
+			final int width = getWidth();
+			final int height = getHeight();
+
+			// Indicator
+			final float cx = mShowLabels ? mPaddingHorizontal + mIndicatorSize / 2f : width / 2f;
+			final float cy = height / 2f;
+
+			canvas.save();
+			canvas.translate(cx, cy);
+
+			if (mRefreshing) {
+				final long elapsed = AnimationUtils.currentAnimationTimeMillis() - mRefreshingStartTime;
+				canvas.rotate(360f * (elapsed % ROTATION_ANIMATION_DURATION) / ROTATION_ANIMATION_DURATION);
+				canvas.drawArc(mArcBounds, START_ANGLE, MAX_SWEEP_ANGLE, false, mArcPaint);
+			} else if (mPullProgress > 0f) {
+				final float sweep = MAX_SWEEP_ANGLE * mPullProgress;
+				canvas.drawArc(mArcBounds, START_ANGLE, sweep, false, mArcPaint);
+				canvas.rotate(START_ANGLE + sweep);
+				canvas.drawPath(mArrowPath, mArcPaint);
+			}
+
+			canvas.restore();
+
+			// Labels
+			if (mShowLabels) {
+				final float textX = width / 2f;
+				final boolean hasSubLabel = !TextUtils.isEmpty(mSubLabel);
+
+				float textHeight = mLabelPaint.getFontSpacing();
+				if (hasSubLabel) {
+					textHeight += mSubLabelPaint.getFontSpacing();
+				}
+				float baseline = (height - textHeight) / 2f - mLabelPaint.ascent();
+
+				if (!TextUtils.isEmpty(mLabel)) {
+					canvas.drawText(mLabel, 0, mLabel.length(), textX, baseline, mLabelPaint);
+				}
+				if (hasSubLabel) {
+					baseline += mLabelPaint.descent() - mSubLabelPaint.ascent();
+					canvas.drawText(mSubLabel, 0, mSubLabel.length(), textX, baseline, mSubLabelPaint);
+				}
+			}
+
+			if (mRefreshing) {
+				ViewCompat.postInvalidateOnAnimation(this);
+			}
+		}
+
+		private static float measure(TextPaint paint, CharSequence text) {
+			return TextUtils.isEmpty(text) ? 0f : paint.measureText(text, 0, text.length());
+		}
+
+		private static int getTextColor(Context context, ColorStateList colors) {
+			if (null != colors) {
+				return colors.getDefaultColor();
+			}
+
+			final TypedArray a = context.obtainStyledAttributes(new int[] { android.R.attr.textColorPrimary });
+			final ColorStateList themeColors = a.getColorStateList(0);
+			a.recycle();
+
+			return null != themeColors ? themeColors.getDefaultColor() : 0xFF000000;
+		}
+	}
+
+}
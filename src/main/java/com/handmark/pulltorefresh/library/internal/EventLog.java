@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library.internal;
+
+import android.util.Log;
+
+/**
+ * A fixed size ring buffer of debug events. Each event is a type, up to three
+ * int values and a timestamp, all kept in primitive arrays, so recording an
+ * event never allocates or builds a String. Strings are only built when the
+ * log is dumped.
+ * <p/>
+ * Every event type belongs to a level. Events above the current level are
+ * dropped after a single comparison, and the buffers aren't allocated until a
+ * level other than {@link #LEVEL_OFF} is set.
+ */
+public final class EventLog {
+
+	public static final int LEVEL_OFF = 0;
+	public static final int LEVEL_STATE = 1;
+	public static final int LEVEL_SCROLL = 2;
+
+	/**
+	 * a = State ordinal
+	 */
+	public static final int STATE = 0;
+
+	/**
+	 * a = Mode int value
+	 */
+	public static final int MODE = 1;
+
+	/**
+	 * a = width, b = height
+	 */
+	public static final int SIZE_CHANGED = 2;
+
+	/**
+	 * a = size, b = 1 for the header, 0 for the footer
+	 */
+	public static final int LOADING_LAYOUT_SIZE = 3;
+
+	/**
+	 * a = header scroll value
+	 */
+	public static final int HEADER_SCROLL = 4;
+
+	/**
+	 * a = delta, b = new scroll value, c = scroll range
+	 */
+	public static final int OVERSCROLL = 5;
+
+	/**
+	 * a = first visible item, b = visible item count, c = total item count
+	 */
+	public static final int LIST_SCROLL = 6;
+
+	/**
+	 * a = items remaining, b = threshold
+	 */
+	public static final int PREFETCH = 7;
+
+	/**
+	 * a = 1 for the first item, 0 for the last, b = last item position, c =
+	 * last visible position. The positions are -1 if the adapter is empty.
+	 */
+	public static final int EDGE_CHECK = 8;
+
+	/**
+	 * a = empty header visible, b = non-empty header visible, c = adapter
+	 * empty, each as 1 or 0
+	 */
+	public static final int HEADER_RECONCILE = 9;
+
+	/**
+	 * a = 1 if the adapter is now empty, b = scroll value moved to
+	 */
+	public static final int EMPTY_TOGGLE = 10;
+
+	/**
+	 * a = index passed to addView, b = child's id, c = Refreshable View's
+	 * child count afterwards
+	 */
+	public static final int ADD_VIEW = 11;
+
+	private static final String[] NAMES = { "STATE", "MODE", "SIZE_CHANGED", "LOADING_LAYOUT_SIZE",
+			"HEADER_SCROLL", "OVERSCROLL", "LIST_SCROLL", "PREFETCH", "EDGE_CHECK", "HEADER_RECONCILE",
+			"EMPTY_TOGGLE", "ADD_VIEW" };
+
+	private static final int[] LEVELS = { LEVEL_STATE, LEVEL_STATE, LEVEL_STATE, LEVEL_STATE, LEVEL_SCROLL,
+			LEVEL_SCROLL, LEVEL_SCROLL, LEVEL_STATE, LEVEL_SCROLL, LEVEL_STATE, LEVEL_STATE, LEVEL_STATE };
+
+	private static final int VALUES_PER_EVENT = 3;
+
+	private final int mCapacity;
+	private int mLevel = LEVEL_OFF;
+
+	private int[] mTypes;
+	private int[] mValues;
+	private long[] mTimes;
+	private int mNext;
+	private int mCount;
+
+	public EventLog(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be greater than 0");
+		}
+		mCapacity = capacity;
+	}
+
+	public int getLevel() {
+		return mLevel;
+	}
+
+	public void setLevel(int level) {
+		mLevel = level;
+		if (level != LEVEL_OFF && null == mTypes) {
+			mTypes = new int[mCapacity];
+			mValues = new int[mCapacity * VALUES_PER_EVENT];
+			mTimes = new long[mCapacity];
+		}
+	}
+
+	/**
+	 * @return true if events of <var>type</var> are currently being recorded.
+	 *         Only needed when working out the values is expensive in itself.
+	 */
+	public boolean isLoggable(int type) {
+		return mLevel >= LEVELS[type];
+	}
+
+	public void log(int type, int a) {
+		log(type, a, 0, 0);
+	}
+
+	public void log(int type, int a, int b) {
+		log(type, a, b, 0);
+	}
+
+	public void log(int type, int a, int b, int c) {
+		if (mLevel < LEVELS[type]) {
+			return;
+		}
+
+		final int index = mNext;
+		mTypes[index] = type;
+		mTimes[index] = System.nanoTime();
+		final int valueIndex = index * VALUES_PER_EVENT;
+		mValues[valueIndex] = a;
+		mValues[valueIndex + 1] = b;
+		mValues[valueIndex + 2] = c;
+
+		mNext = (index + 1) % mCapacity;
+		if (mCount < mCapacity) {
+			mCount++;
+		}
+	}
+
+	public void clear() {
+		mNext = 0;
+		mCount = 0;
+	}
+
+	/**
+	 * Writes every recorded event to logcat, oldest first, with its time
+	 * relative to the oldest event. The log is left as it was.
+	 *
+	 * @param tag - Logcat tag to use
+	 */
+	public void dump(String tag) {
+		if (mCount == 0) {
+			return;
+		}
+
+		final int first = (mNext - mCount + mCapacity) % mCapacity;
+		final long startTime = mTimes[first];
+		final StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < mCount; i++) {
+			final int index = (first + i) % mCapacity;
+			final int valueIndex = index * VALUES_PER_EVENT;
+
+			sb.setLength(0);
+			sb.append('+').append((mTimes[index] - startTime) / 1000L).append("us ");
+			sb.append(NAMES[mTypes[index]]);
+			sb.append(' ').append(mValues[valueIndex]);
+			sb.append(' ').append(mValues[valueIndex + 1]);
+			sb.append(' ').append(mValues[valueIndex + 2]);
+			Log.d(tag, sb.toString());
+		}
+	}
+
+}
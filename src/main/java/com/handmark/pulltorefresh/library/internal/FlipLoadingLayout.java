@@ -17,7 +17,6 @@ package com.handmark.pulltorefresh.library.internal;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.graphics.Matrix;
 import android.graphics.drawable.Drawable;
 import android.view.View;
@@ -37,7 +36,7 @@ public class FlipLoadingLayout extends LoadingLayout {
 
 	private final Animation mRotateAnimation, mResetRotateAnimation;
 
-	public FlipLoadingLayout(Context context, final Mode mode, final Orientation scrollDirection, TypedArray attrs) {
+	public FlipLoadingLayout(Context context, final Mode mode, final Orientation scrollDirection, LoadingLayoutAttributes attrs) {
 		super(context, mode, scrollDirection, attrs, null);
 
 		final int rotateAngle = mode == Mode.PULL_FROM_START ? -180 : 180;
@@ -87,6 +86,12 @@ public class FlipLoadingLayout extends LoadingLayout {
 		// NO-OP
 	}
 
+	@Override
+	protected float getMaximumPullScale() {
+		// Nothing changes while pulling
+		return 0f;
+	}
+
 	@Override
 	protected void pullToRefreshImpl() {
 		// Only start reset Animation, we've previously show the rotate anim
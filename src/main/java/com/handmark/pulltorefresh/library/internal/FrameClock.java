@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library.internal;
+
+import android.annotation.TargetApi;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
+import android.view.Choreographer;
+import android.view.View;
+
+/**
+ * Delivers a callback on the next display frame, along with the timestamp of
+ * that frame. On Jelly Bean and above this is driven by {@link Choreographer},
+ * so the timestamp is the vsync time of the frame being drawn. On older
+ * platforms it falls back to a Runnable posted to the View.
+ * <p/>
+ * An instance is meant to be created once and reused, so scheduling a frame
+ * never allocates.
+ */
+public abstract class FrameClock {
+
+	public static FrameClock create(View view, FrameListener listener) {
+		if (VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN) {
+			return new SDK16(listener);
+		} else {
+			return new Legacy(view, listener);
+		}
+	}
+
+	final FrameListener mListener;
+
+	FrameClock(FrameListener listener) {
+		mListener = listener;
+	}
+
+	/**
+	 * Request a callback on the next frame. Calling this again before the
+	 * frame has been delivered has no effect.
+	 */
+	public abstract void postFrame();
+
+	/**
+	 * Request a callback on the first frame after <var>delayMillis</var> have
+	 * passed.
+	 */
+	public abstract void postFrameDelayed(long delayMillis);
+
+	/**
+	 * Remove any pending callback.
+	 */
+	public abstract void cancel();
+
+	public static interface FrameListener {
+
+		/**
+		 * Called once per requested frame.
+		 *
+		 * @param frameTimeNanos - Time of the frame, in the
+		 *            {@link System#nanoTime()} time base.
+		 */
+		public void onFrame(long frameTimeNanos);
+
+	}
+
+	@TargetApi(16)
+	static final class SDK16 extends FrameClock implements Choreographer.FrameCallback {
+
+		private final Choreographer mChoreographer;
+		private boolean mPosted;
+
+		SDK16(FrameListener listener) {
+			super(listener);
+			mChoreographer = Choreographer.getInstance();
+		}
+
+		@Override
+		public void postFrame() {
+			if (!mPosted) {
+				mPosted = true;
+				mChoreographer.postFrameCallback(this);
+			}
+		}
+
+		@Override
+		public void postFrameDelayed(long delayMillis) {
+			cancel();
+			mPosted = true;
+			mChoreographer.postFrameCallbackDelayed(this, delayMillis);
+		}
+
+		@Override
+		public void cancel() {
+			if (mPosted) {
+				mPosted = false;
+				mChoreographer.removeFrameCallback(this);
+			}
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			mPosted = false;
+			mListener.onFrame(frameTimeNanos);
+		}
+	}
+
+	static final class Legacy extends FrameClock implements Runnable {
+
+		private final View mView;
+		private boolean mPosted;
+
+		Legacy(View view, FrameListener listener) {
+			super(listener);
+			mView = view;
+		}
+
+		@Override
+		public void postFrame() {
+			if (!mPosted) {
+				mPosted = true;
+				ViewCompat.postOnAnimation(mView, this);
+			}
+		}
+
+		@Override
+		public void postFrameDelayed(long delayMillis) {
+			cancel();
+			mPosted = true;
+			mView.postDelayed(this, delayMillis);
+		}
+
+		@Override
+		public void cancel() {
+			if (mPosted) {
+				mPosted = false;
+				mView.removeCallbacks(this);
+			}
+		}
+
+		@Override
+		public void run() {
+			mPosted = false;
+			mListener.onFrame(System.nanoTime());
+		}
+	}
+
+}
@@ -18,13 +18,11 @@ package com.handmark.pulltorefresh.library.internal;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.ColorStateList;
-import android.content.res.TypedArray;
 import android.graphics.Typeface;
 import android.graphics.drawable.AnimationDrawable;
 import android.graphics.drawable.Drawable;
 import android.text.TextUtils;
 import android.util.Log;
-import android.util.TypedValue;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -48,6 +46,12 @@ public abstract class LoadingLayout extends FrameLayout implements ILoadingLayou
 
 	static final Interpolator ANIMATION_INTERPOLATOR = new LinearInterpolator();
 
+	/**
+	 * Pull scales are rounded to this many steps per Loading Layout size
+	 * before being passed to {@link #onPullImpl(float)}.
+	 */
+	static final int PULL_SCALE_STEPS = 360;
+
 	protected ViewGroup mInnerLayout;
 
 	protected final ImageView mHeaderImage;
@@ -55,9 +59,14 @@ public abstract class LoadingLayout extends FrameLayout implements ILoadingLayou
 
 	private boolean mUseIntrinsicAnimation;
 
+	private int mLastPullStep = -1;
+	private int mSkippedPullUpdates = 0;
+
 	protected final TextView mHeaderText;
 	private final TextView mSubHeaderText;
 
+	private final View mContentView;
+
 	protected final Mode mMode;
 	protected final Orientation mScrollDirection;
 
@@ -65,7 +74,11 @@ public abstract class LoadingLayout extends FrameLayout implements ILoadingLayou
 	private CharSequence mRefreshingLabel;
 	private CharSequence mReleaseLabel;
 
-	public LoadingLayout(Context context, final Mode mode, final Orientation scrollDirection, TypedArray attrs, Integer customLoadingLayoutResId) {
+	// Used by setLabels() to turn several layout requests into one
+	private boolean mBlockLayoutRequests;
+	private boolean mLayoutRequestBlocked;
+
+	public LoadingLayout(Context context, final Mode mode, final Orientation scrollDirection, LoadingLayoutAttributes attrs, Integer customLoadingLayoutResId) {
 		super(context);
 		mMode = mode;
 		mScrollDirection = scrollDirection;
@@ -85,104 +98,115 @@ public abstract class LoadingLayout extends FrameLayout implements ILoadingLayou
 		}
 
 		mInnerLayout = (ViewGroup) findViewById(R.id.fl_inner);
+		mContentView = mInnerLayout;
 		mHeaderText = (TextView) mInnerLayout.findViewById(R.id.pull_to_refresh_text);
 		mHeaderProgress = (ProgressBar) mInnerLayout.findViewById(R.id.pull_to_refresh_progress);
 		mSubHeaderText = (TextView) mInnerLayout.findViewById(R.id.pull_to_refresh_sub_text);
 		mHeaderImage = (ImageView) mInnerLayout.findViewById(R.id.pull_to_refresh_image);
 
 		FrameLayout.LayoutParams lp = (FrameLayout.LayoutParams) mInnerLayout.getLayoutParams();
+		lp.gravity = getContentGravity(mode, scrollDirection);
 
-		switch (mode) {
-			case PULL_FROM_END:
-				lp.gravity = scrollDirection == Orientation.VERTICAL ? Gravity.TOP : Gravity.LEFT;
-
-				// Load in labels
-				mPullLabel = context.getString(R.string.pull_to_refresh_from_bottom_pull_label);
-				mRefreshingLabel = context.getString(R.string.pull_to_refresh_from_bottom_refreshing_label);
-				mReleaseLabel = context.getString(R.string.pull_to_refresh_from_bottom_release_label);
-				break;
-
-			case PULL_FROM_START:
-			default:
-				lp.gravity = scrollDirection == Orientation.VERTICAL ? Gravity.BOTTOM : Gravity.RIGHT;
-
-				// Load in labels
-				mPullLabel = context.getString(R.string.pull_to_refresh_pull_label);
-				mRefreshingLabel = context.getString(R.string.pull_to_refresh_refreshing_label);
-				mReleaseLabel = context.getString(R.string.pull_to_refresh_release_label);
-				break;
-		}
+		// Load in labels, these are shared with every other LoadingLayout
+		final LoadingLayoutTemplates templates = LoadingLayoutTemplates.get(context.getResources());
+		loadLabels(templates, context, mode);
+		loadHeaderBackground(context, attrs);
 
-		if (attrs.hasValue(R.styleable.PullToRefresh_ptrHeaderBackground)) {
-			Drawable background = attrs.getDrawable(R.styleable.PullToRefresh_ptrHeaderBackground);
-			if (null != background) {
-				ViewCompat.setBackground(this, background);
-			}
+		final int textAppearance = attrs.getHeaderTextAppearance();
+		if (0 != textAppearance) {
+			setTextAppearance(textAppearance);
 		}
-
-		if (attrs.hasValue(R.styleable.PullToRefresh_ptrHeaderTextAppearance)) {
-			TypedValue styleID = new TypedValue();
-			attrs.getValue(R.styleable.PullToRefresh_ptrHeaderTextAppearance, styleID);
-			setTextAppearance(styleID.data);
-		}
-		if (attrs.hasValue(R.styleable.PullToRefresh_ptrSubHeaderTextAppearance)) {
-			TypedValue styleID = new TypedValue();
-			attrs.getValue(R.styleable.PullToRefresh_ptrSubHeaderTextAppearance, styleID);
-			setSubTextAppearance(styleID.data);
+		final int subTextAppearance = attrs.getSubHeaderTextAppearance();
+		if (0 != subTextAppearance) {
+			setSubTextAppearance(subTextAppearance);
 		}
 
 		// Text Color attrs need to be set after TextAppearance attrs
-		if (attrs.hasValue(R.styleable.PullToRefresh_ptrHeaderTextColor)) {
-			ColorStateList colors = attrs.getColorStateList(R.styleable.PullToRefresh_ptrHeaderTextColor);
-			if (null != colors) {
-				setTextColor(colors);
-			}
+		final ColorStateList textColor = attrs.getHeaderTextColor();
+		if (null != textColor) {
+			setTextColor(textColor);
 		}
-		if (attrs.hasValue(R.styleable.PullToRefresh_ptrHeaderSubTextColor)) {
-			ColorStateList colors = attrs.getColorStateList(R.styleable.PullToRefresh_ptrHeaderSubTextColor);
-			if (null != colors) {
-				setSubTextColor(colors);
-			}
+		final ColorStateList subTextColor = attrs.getHeaderSubTextColor();
+		if (null != subTextColor) {
+			setSubTextColor(subTextColor);
 		}
 
-		// Try and get defined drawable from Attrs
-		Drawable imageDrawable = null;
-		if (attrs.hasValue(R.styleable.PullToRefresh_ptrDrawable)) {
-			imageDrawable = attrs.getDrawable(R.styleable.PullToRefresh_ptrDrawable);
+		// Try and get defined drawable from Attrs, the mode specific drawables
+		// override the generic drawable attr
+		Drawable imageDrawable = attrs.getLoadingDrawable(context.getResources(), mode);
+
+		// If we don't have a user defined drawable, load the default
+		if (null == imageDrawable) {
+			imageDrawable = templates.getDrawable(context.getResources(), getDefaultDrawableResId());
 		}
 
-		// Check Specific Drawable from Attrs, these overrite the generic
-		// drawable attr above
-		switch (mode) {
-			case PULL_FROM_START:
+		// Set Drawable, and save width/height
+		setLoadingDrawable(imageDrawable);
+
+		reset();
+	}
+
+	/**
+	 * Creates a LoadingLayout which doesn't inflate the default header layout,
+	 * and shows <var>contentView</var> instead. The default Views (such as
+	 * {@link #mHeaderImage} and {@link #mHeaderText}) are all null, so the
+	 * derivative Layout is responsible for displaying the labels and state
+	 * itself.
+	 */
+	protected LoadingLayout(Context context, final Mode mode, final Orientation scrollDirection,
+			LoadingLayoutAttributes attrs, View contentView) {
+		super(context);
+		mMode = mode;
+		mScrollDirection = scrollDirection;
+
+		mContentView = contentView;
+		mHeaderText = null;
+		mHeaderProgress = null;
+		mSubHeaderText = null;
+		mHeaderImage = null;
+
+		final FrameLayout.LayoutParams lp;
+		switch (scrollDirection) {
+			case HORIZONTAL:
+				lp = new FrameLayout.LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.MATCH_PARENT);
+				break;
+			case VERTICAL:
 			default:
-				if (attrs.hasValue(R.styleable.PullToRefresh_ptrDrawableStart)) {
-					imageDrawable = attrs.getDrawable(R.styleable.PullToRefresh_ptrDrawableStart);
-				} else if (attrs.hasValue(R.styleable.PullToRefresh_ptrDrawableTop)) {
-					Utils.warnDeprecation("ptrDrawableTop", "ptrDrawableStart");
-					imageDrawable = attrs.getDrawable(R.styleable.PullToRefresh_ptrDrawableTop);
-				}
+				lp = new FrameLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT);
 				break;
+		}
+		lp.gravity = getContentGravity(mode, scrollDirection);
+		addView(contentView, lp);
+
+		loadLabels(LoadingLayoutTemplates.get(context.getResources()), context, mode);
+		loadHeaderBackground(context, attrs);
 
+		reset();
+	}
+
+	private static int getContentGravity(Mode mode, Orientation scrollDirection) {
+		switch (mode) {
 			case PULL_FROM_END:
-				if (attrs.hasValue(R.styleable.PullToRefresh_ptrDrawableEnd)) {
-					imageDrawable = attrs.getDrawable(R.styleable.PullToRefresh_ptrDrawableEnd);
-				} else if (attrs.hasValue(R.styleable.PullToRefresh_ptrDrawableBottom)) {
-					Utils.warnDeprecation("ptrDrawableBottom", "ptrDrawableEnd");
-					imageDrawable = attrs.getDrawable(R.styleable.PullToRefresh_ptrDrawableBottom);
-				}
-				break;
-		}
+				return scrollDirection == Orientation.VERTICAL ? Gravity.TOP : Gravity.LEFT;
 
-		// If we don't have a user defined drawable, load the default
-		if (null == imageDrawable) {
-			imageDrawable = context.getResources().getDrawable(getDefaultDrawableResId());
+			case PULL_FROM_START:
+			default:
+				return scrollDirection == Orientation.VERTICAL ? Gravity.BOTTOM : Gravity.RIGHT;
 		}
+	}
 
-		// Set Drawable, and save width/height
-		setLoadingDrawable(imageDrawable);
+	private void loadLabels(LoadingLayoutTemplates templates, Context context, Mode mode) {
+		final CharSequence[] labels = templates.getLabels(context.getResources(), mode);
+		mPullLabel = labels[LoadingLayoutTemplates.LABEL_PULL];
+		mRefreshingLabel = labels[LoadingLayoutTemplates.LABEL_REFRESHING];
+		mReleaseLabel = labels[LoadingLayoutTemplates.LABEL_RELEASE];
+	}
 
-		reset();
+	private void loadHeaderBackground(Context context, LoadingLayoutAttributes attrs) {
+		Drawable background = attrs.getHeaderBackground(context.getResources());
+		if (null != background) {
+			ViewCompat.setBackground(this, background);
+		}
 	}
 
 	public final void setHeight(int height) {
@@ -200,15 +224,16 @@ public abstract class LoadingLayout extends FrameLayout implements ILoadingLayou
 	public final int getContentSize() {
 		switch (mScrollDirection) {
 			case HORIZONTAL:
-				return mInnerLayout.getWidth();
+				return mContentView.getWidth();
 			case VERTICAL:
 			default:
-				return mInnerLayout.getHeight();
+				return mContentView.getHeight();
 		}
 	}
 
 	public void hideAllViews() {
-		if (View.VISIBLE == mHeaderText.getVisibility()) {
+		if (null != mHeaderText &&
+			View.VISIBLE == mHeaderText.getVisibility()) {
 			mHeaderText.setVisibility(View.INVISIBLE);
 		}
 		if (null != mHeaderProgress &&
@@ -226,9 +251,28 @@ public abstract class LoadingLayout extends FrameLayout implements ILoadingLayou
 	}
 
 	public void onPull(float scaleOfLayout) {
-		if (!mUseIntrinsicAnimation) {
-			onPullImpl(scaleOfLayout);
+		if (mUseIntrinsicAnimation) {
+			return;
 		}
+
+		// Only call through if the result could look any different
+		final int step = Math.round(Math.min(scaleOfLayout, getMaximumPullScale()) * PULL_SCALE_STEPS);
+		if (step == mLastPullStep) {
+			mSkippedPullUpdates++;
+			return;
+		}
+		mLastPullStep = step;
+
+		onPullImpl(step / (float) PULL_SCALE_STEPS);
+	}
+
+	/**
+	 * @return The number of times {@link #onPull(float)} has been called
+	 *         without calling {@link #onPullImpl(float)}, as the display
+	 *         wouldn't have changed.
+	 */
+	public final int getSkippedPullUpdateCount() {
+		return mSkippedPullUpdates;
 	}
 
 	public void pullToRefresh() {
@@ -267,10 +311,14 @@ public abstract class LoadingLayout extends FrameLayout implements ILoadingLayou
 	}
 
 	public void reset() {
+		mLastPullStep = -1;
+
 		if (null != mHeaderText) {
 			mHeaderText.setText(mPullLabel);
 		}
-		mHeaderImage.setVisibility(View.VISIBLE);
+		if (null != mHeaderImage) {
+			mHeaderImage.setVisibility(View.VISIBLE);
+		}
 
 		if (mUseIntrinsicAnimation) {
 			((AnimationDrawable) mHeaderImage.getDrawable()).stop();
@@ -294,6 +342,10 @@ public abstract class LoadingLayout extends FrameLayout implements ILoadingLayou
 	}
 
 	public void setLoadingDrawable(Drawable imageDrawable) {
+		if (null == mHeaderImage) {
+			return;
+		}
+
 		// Set Drawable
 		mHeaderImage.setImageDrawable(imageDrawable);
 		mUseIntrinsicAnimation = (imageDrawable instanceof AnimationDrawable);
@@ -314,13 +366,58 @@ public abstract class LoadingLayout extends FrameLayout implements ILoadingLayou
 		mReleaseLabel = releaseLabel;
 	}
 
+	/**
+	 * Sets several labels at once. Any layout requests they cause are held
+	 * back until all of them have been set, and then made once. Any label
+	 * which is null is left as it is.
+	 */
+	public final void setLabels(CharSequence pullLabel, CharSequence refreshingLabel, CharSequence releaseLabel,
+			CharSequence lastUpdatedLabel) {
+		mBlockLayoutRequests = true;
+		try {
+			if (null != pullLabel) {
+				setPullLabel(pullLabel);
+			}
+			if (null != refreshingLabel) {
+				setRefreshingLabel(refreshingLabel);
+			}
+			if (null != releaseLabel) {
+				setReleaseLabel(releaseLabel);
+			}
+			if (null != lastUpdatedLabel) {
+				setLastUpdatedLabel(lastUpdatedLabel);
+			}
+		} finally {
+			mBlockLayoutRequests = false;
+		}
+
+		if (mLayoutRequestBlocked) {
+			mLayoutRequestBlocked = false;
+			requestLayout();
+		}
+	}
+
+	@Override
+	public void requestLayout() {
+		if (mBlockLayoutRequests) {
+			// The children keep their own requests, so they're still measured
+			// in the next layout pass
+			mLayoutRequestBlocked = true;
+			return;
+		}
+		super.requestLayout();
+	}
+
 	@Override
 	public void setTextTypeface(Typeface tf) {
-		mHeaderText.setTypeface(tf);
+		if (null != mHeaderText) {
+			mHeaderText.setTypeface(tf);
+		}
 	}
 
 	public void showInvisibleViews() {
-		if (View.INVISIBLE == mHeaderText.getVisibility()) {
+		if (null != mHeaderText &&
+			View.INVISIBLE == mHeaderText.getVisibility()) {
 			mHeaderText.setVisibility(View.VISIBLE);
 		}
 		if (null != mHeaderProgress &&
@@ -337,10 +434,30 @@ public abstract class LoadingLayout extends FrameLayout implements ILoadingLayou
 		}
 	}
 
+	protected final CharSequence getPullLabel() {
+		return mPullLabel;
+	}
+
+	protected final CharSequence getRefreshingLabel() {
+		return mRefreshingLabel;
+	}
+
+	protected final CharSequence getReleaseLabel() {
+		return mReleaseLabel;
+	}
+
 	/**
 	 * Callbacks for derivative Layouts
 	 */
 
+	/**
+	 * @return The scale above which {@link #onPullImpl(float)} no longer
+	 *         changes anything. Pulls beyond it are passed on as this value.
+	 */
+	protected float getMaximumPullScale() {
+		return Float.MAX_VALUE;
+	}
+
 	protected abstract int getDefaultDrawableResId();
 
 	protected abstract void onLoadingDrawableSet(Drawable imageDrawable);
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library.internal;
+
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.drawable.Drawable;
+import android.util.TypedValue;
+
+import com.handmark.pulltorefresh.library.PullToRefreshBase.Mode;
+import com.handmark.pulltorefresh.library.R;
+
+/**
+ * The PullToRefresh XML attributes which {@link LoadingLayout}s use, read out
+ * of the TypedArray once. This lets the TypedArray be recycled straight away,
+ * while Loading Layouts can still be created later on.
+ * <p/>
+ * Drawables are kept as their {@link Drawable.ConstantState}, so each Loading
+ * Layout gets its own Drawable, sharing the underlying Bitmap.
+ */
+public final class LoadingLayoutAttributes {
+
+	private final Drawable.ConstantState mHeaderBackground;
+	private final Drawable.ConstantState mDrawable;
+	private final Drawable.ConstantState mDrawableStart;
+	private final Drawable.ConstantState mDrawableEnd;
+
+	private final int mHeaderTextAppearance;
+	private final int mSubHeaderTextAppearance;
+	private final ColorStateList mHeaderTextColor;
+	private final ColorStateList mHeaderSubTextColor;
+
+	private final boolean mRotateDrawableWhilePulling;
+
+	public LoadingLayoutAttributes(TypedArray attrs) {
+		mHeaderBackground = getConstantState(attrs, R.styleable.PullToRefresh_ptrHeaderBackground);
+		mDrawable = getConstantState(attrs, R.styleable.PullToRefresh_ptrDrawable);
+
+		if (attrs.hasValue(R.styleable.PullToRefresh_ptrDrawableStart)) {
+			mDrawableStart = getConstantState(attrs, R.styleable.PullToRefresh_ptrDrawableStart);
+		} else if (attrs.hasValue(R.styleable.PullToRefresh_ptrDrawableTop)) {
+			Utils.warnDeprecation("ptrDrawableTop", "ptrDrawableStart");
+			mDrawableStart = getConstantState(attrs, R.styleable.PullToRefresh_ptrDrawableTop);
+		} else {
+			mDrawableStart = null;
+		}
+
+		if (attrs.hasValue(R.styleable.PullToRefresh_ptrDrawableEnd)) {
+			mDrawableEnd = getConstantState(attrs, R.styleable.PullToRefresh_ptrDrawableEnd);
+		} else if (attrs.hasValue(R.styleable.PullToRefresh_ptrDrawableBottom)) {
+			Utils.warnDeprecation("ptrDrawableBottom", "ptrDrawableEnd");
+			mDrawableEnd = getConstantState(attrs, R.styleable.PullToRefresh_ptrDrawableBottom);
+		} else {
+			mDrawableEnd = null;
+		}
+
+		mHeaderTextAppearance = getStyleId(attrs, R.styleable.PullToRefresh_ptrHeaderTextAppearance);
+		mSubHeaderTextAppearance = getStyleId(attrs, R.styleable.PullToRefresh_ptrSubHeaderTextAppearance);
+		mHeaderTextColor = attrs.getColorStateList(R.styleable.PullToRefresh_ptrHeaderTextColor);
+		mHeaderSubTextColor = attrs.getColorStateList(R.styleable.PullToRefresh_ptrHeaderSubTextColor);
+
+		mRotateDrawableWhilePulling = attrs.getBoolean(R.styleable.PullToRefresh_ptrRotateDrawableWhilePulling, true);
+	}
+
+	/**
+	 * @return A new Drawable for ptrHeaderBackground, or null if it isn't set
+	 */
+	public Drawable getHeaderBackground(Resources res) {
+		return newDrawable(mHeaderBackground, res);
+	}
+
+	/**
+	 * @return A new Drawable for the loading image of <var>mode</var>, from
+	 *         ptrDrawableStart or ptrDrawableEnd if set, otherwise ptrDrawable.
+	 *         Null if none of them are set.
+	 */
+	public Drawable getLoadingDrawable(Resources res, Mode mode) {
+		final Drawable.ConstantState specific = mode == Mode.PULL_FROM_END ? mDrawableEnd : mDrawableStart;
+		return newDrawable(null != specific ? specific : mDrawable, res);
+	}
+
+	/**
+	 * @return The ptrHeaderTextAppearance style, or 0 if it isn't set
+	 */
+	public int getHeaderTextAppearance() {
+		return mHeaderTextAppearance;
+	}
+
+	/**
+	 * @return The ptrSubHeaderTextAppearance style, or 0 if it isn't set
+	 */
+	public int getSubHeaderTextAppearance() {
+		return mSubHeaderTextAppearance;
+	}
+
+	/**
+	 * @return ptrHeaderTextColor, or null if it isn't set
+	 */
+	public ColorStateList getHeaderTextColor() {
+		return mHeaderTextColor;
+	}
+
+	/**
+	 * @return ptrHeaderSubTextColor, or null if it isn't set
+	 */
+	public ColorStateList getHeaderSubTextColor() {
+		return mHeaderSubTextColor;
+	}
+
+	public boolean isRotateDrawableWhilePulling() {
+		return mRotateDrawableWhilePulling;
+	}
+
+	private static Drawable.ConstantState getConstantState(TypedArray attrs, int index) {
+		if (attrs.hasValue(index)) {
+			final Drawable drawable = attrs.getDrawable(index);
+			if (null != drawable) {
+				return drawable.getConstantState();
+			}
+		}
+		return null;
+	}
+
+	private static Drawable newDrawable(Drawable.ConstantState state, Resources res) {
+		return null != state ? state.newDrawable(res) : null;
+	}
+
+	private static int getStyleId(TypedArray attrs, int index) {
+		if (attrs.hasValue(index)) {
+			final TypedValue styleId = new TypedValue();
+			attrs.getValue(index, styleId);
+			return styleId.data;
+		}
+		return 0;
+	}
+
+}
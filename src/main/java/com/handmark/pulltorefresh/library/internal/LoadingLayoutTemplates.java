@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library.internal;
+
+import java.util.WeakHashMap;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.util.SparseArray;
+
+import com.handmark.pulltorefresh.library.PullToRefreshBase.Mode;
+import com.handmark.pulltorefresh.library.R;
+
+/**
+ * Resources which every {@link LoadingLayout} loads, resolved once and then
+ * shared by all of the LoadingLayouts created with the same
+ * {@link Resources}. This makes creating the second and later LoadingLayouts
+ * much cheaper, for instance when there are several PullToRefresh Views in a
+ * ViewPager.
+ * <p/>
+ * Templates are thrown away if the Resources' Configuration changes (for
+ * instance the locale), and are only weakly tied to the Resources. This class
+ * should only be used from the UI thread.
+ */
+final class LoadingLayoutTemplates {
+
+	static final int LABEL_PULL = 0;
+	static final int LABEL_REFRESHING = 1;
+	static final int LABEL_RELEASE = 2;
+
+	private static final WeakHashMap<Resources, LoadingLayoutTemplates> sTemplates = new WeakHashMap<Resources, LoadingLayoutTemplates>();
+
+	static LoadingLayoutTemplates get(Resources res) {
+		final Configuration config = res.getConfiguration();
+
+		LoadingLayoutTemplates templates = sTemplates.get(res);
+		if (null == templates || !templates.mConfiguration.equals(config)) {
+			templates = new LoadingLayoutTemplates(config);
+			sTemplates.put(res, templates);
+		}
+		return templates;
+	}
+
+	private final Configuration mConfiguration;
+
+	private CharSequence[] mStartLabels;
+	private CharSequence[] mEndLabels;
+
+	private final SparseArray<Drawable.ConstantState> mDrawables = new SparseArray<Drawable.ConstantState>();
+
+	private LoadingLayoutTemplates(Configuration config) {
+		mConfiguration = new Configuration(config);
+	}
+
+	/**
+	 * @return The pull, refreshing and release labels for <var>mode</var>,
+	 *         indexed by {@link #LABEL_PULL}, {@link #LABEL_REFRESHING} and
+	 *         {@link #LABEL_RELEASE}. The array must not be modified.
+	 */
+	CharSequence[] getLabels(Resources res, Mode mode) {
+		switch (mode) {
+			case PULL_FROM_END:
+				if (null == mEndLabels) {
+					mEndLabels = new CharSequence[] { res.getString(R.string.pull_to_refresh_from_bottom_pull_label),
+							res.getString(R.string.pull_to_refresh_from_bottom_refreshing_label),
+							res.getString(R.string.pull_to_refresh_from_bottom_release_label) };
+				}
+				return mEndLabels;
+
+			case PULL_FROM_START:
+			default:
+				if (null == mStartLabels) {
+					mStartLabels = new CharSequence[] { res.getString(R.string.pull_to_refresh_pull_label),
+							res.getString(R.string.pull_to_refresh_refreshing_label),
+							res.getString(R.string.pull_to_refresh_release_label) };
+				}
+				return mStartLabels;
+		}
+	}
+
+	/**
+	 * @return A new Drawable for <var>resId</var>, which shares its state
+	 *         (such as its Bitmap) with every other Drawable returned for the
+	 *         same resource.
+	 */
+	Drawable getDrawable(Resources res, int resId) {
+		Drawable.ConstantState state = mDrawables.get(resId);
+		if (null == state) {
+			final Drawable drawable = res.getDrawable(resId);
+			state = drawable.getConstantState();
+			if (null == state) {
+				// Can't be shared, so don't cache it
+				return drawable;
+			}
+			mDrawables.put(resId, state);
+		}
+		return state.newDrawable(res);
+	}
+
+}
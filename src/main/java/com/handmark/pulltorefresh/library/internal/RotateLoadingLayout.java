@@ -16,7 +16,6 @@
 package com.handmark.pulltorefresh.library.internal;
 
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.graphics.Matrix;
 import android.graphics.drawable.Drawable;
 import android.view.animation.Animation;
@@ -35,13 +34,14 @@ public class RotateLoadingLayout extends LoadingLayout {
 	private final Matrix mHeaderImageMatrix;
 
 	private float mRotationPivotX, mRotationPivotY;
+	private float mRotationAngle;
 
 	private final boolean mRotateDrawableWhilePulling;
 
-	public RotateLoadingLayout(Context context, Mode mode, Orientation scrollDirection, TypedArray attrs) {
+	public RotateLoadingLayout(Context context, Mode mode, Orientation scrollDirection, LoadingLayoutAttributes attrs) {
 		super(context, mode, scrollDirection, attrs, null);
 
-		mRotateDrawableWhilePulling = attrs.getBoolean(R.styleable.PullToRefresh_ptrRotateDrawableWhilePulling, true);
+		mRotateDrawableWhilePulling = attrs.isRotateDrawableWhilePulling();
 
 		mHeaderImage.setScaleType(ScaleType.MATRIX);
 		mHeaderImageMatrix = new Matrix();
@@ -70,10 +70,22 @@ public class RotateLoadingLayout extends LoadingLayout {
 			angle = Math.max(0f, Math.min(180f, scaleOfLayout * 360f - 180f));
 		}
 
+		// The angle is clamped at both ends when not rotating while pulling
+		if (angle == mRotationAngle) {
+			return;
+		}
+		mRotationAngle = angle;
+
 		mHeaderImageMatrix.setRotate(angle, mRotationPivotX, mRotationPivotY);
 		mHeaderImage.setImageMatrix(mHeaderImageMatrix);
 	}
 
+	@Override
+	protected float getMaximumPullScale() {
+		// Past this the drawable is flipped, and stays there
+		return mRotateDrawableWhilePulling ? super.getMaximumPullScale() : 1f;
+	}
+
 	@Override
 	protected void refreshingImpl() {
 		mHeaderImage.startAnimation(mRotateAnimation);
@@ -87,6 +99,7 @@ public class RotateLoadingLayout extends LoadingLayout {
 
 	private void resetImageRotation() {
 		if (null != mHeaderImageMatrix) {
+			mRotationAngle = 0f;
 			mHeaderImageMatrix.reset();
 			mHeaderImage.setImageMatrix(mHeaderImageMatrix);
 		}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library.internal;
+
+import android.annotation.TargetApi;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
+import android.os.Trace;
+
+/**
+ * Emits systrace sections on JELLY_BEAN_MR2 and later, and does nothing on
+ * older platforms. Sections must be ended on the same thread they were begun
+ * on, in reverse order.
+ */
+public class TraceCompat {
+
+	public static void beginSection(String sectionName) {
+		if (VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN_MR2) {
+			SDK18.beginSection(sectionName);
+		}
+	}
+
+	public static void endSection() {
+		if (VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN_MR2) {
+			SDK18.endSection();
+		}
+	}
+
+	@TargetApi(18)
+	static class SDK18 {
+
+		public static void beginSection(String sectionName) {
+			Trace.beginSection(sectionName);
+		}
+
+		public static void endSection() {
+			Trace.endSection();
+		}
+	}
+
+}
@@ -32,6 +32,14 @@ public class ViewCompat {
 		}
 	}
 
+	public static void postInvalidateOnAnimation(View view) {
+		if (VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN) {
+			SDK16.postInvalidateOnAnimation(view);
+		} else {
+			view.postInvalidateDelayed(16);
+		}
+	}
+
 	public static void setBackground(View view, Drawable background) {
 		if (VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN) {
 			SDK16.setBackground(view, background);
@@ -46,12 +54,38 @@ public class ViewCompat {
 		}
 	}
 
+	public static void setNestedScrollingEnabled(View view, boolean enabled) {
+		if (VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP) {
+			SDK21.setNestedScrollingEnabled(view, enabled);
+		}
+	}
+
+	public static void setTranslationX(View view, float translationX) {
+		if (VERSION.SDK_INT >= VERSION_CODES.HONEYCOMB) {
+			SDK11.setTranslationX(view, translationX);
+		}
+	}
+
+	public static void setTranslationY(View view, float translationY) {
+		if (VERSION.SDK_INT >= VERSION_CODES.HONEYCOMB) {
+			SDK11.setTranslationY(view, translationY);
+		}
+	}
+
 	@TargetApi(11)
 	static class SDK11 {
 
 		public static void setLayerType(View view, int layerType) {
 			view.setLayerType(layerType, null);
 		}
+
+		public static void setTranslationX(View view, float translationX) {
+			view.setTranslationX(translationX);
+		}
+
+		public static void setTranslationY(View view, float translationY) {
+			view.setTranslationY(translationY);
+		}
 	}
 
 	@TargetApi(16)
@@ -61,10 +95,22 @@ public class ViewCompat {
 			view.postOnAnimation(runnable);
 		}
 
+		public static void postInvalidateOnAnimation(View view) {
+			view.postInvalidateOnAnimation();
+		}
+
 		public static void setBackground(View view, Drawable background) {
 			view.setBackground(background);
 		}
 
 	}
 
+	@TargetApi(21)
+	static class SDK21 {
+
+		public static void setNestedScrollingEnabled(View view, boolean enabled) {
+			view.setNestedScrollingEnabled(enabled);
+		}
+	}
+
 }
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library;
+
+import java.util.Random;
+
+import com.handmark.pulltorefresh.library.PullToRefreshBase.Mode;
+import com.handmark.pulltorefresh.library.PullToRefreshBase.State;
+
+/**
+ * Measures mapping ints back to {@link Mode} and {@link State}, against the
+ * way it used to be done, calling values() each time.
+ * <p/>
+ * Both enums are nested in PullToRefreshBase, so unlike {@link PullBenchmark}
+ * this needs android.jar on the classpath. Run it with the unit test
+ * classpath.
+ */
+public final class EnumMappingBenchmark {
+
+	private static final int SAMPLES = 1 << 12;
+	private static final int OPERATIONS = 1 << 20;
+
+	public static void main(String[] args) {
+		final Random random = new Random(42);
+		final int[] modeInts = new int[SAMPLES];
+		final int[] stateInts = new int[SAMPLES];
+		final State[] states = State.values();
+		for (int i = 0; i < SAMPLES; i++) {
+			modeInts[i] = random.nextInt(5);
+			stateInts[i] = states[random.nextInt(states.length)].getIntValue();
+		}
+
+		MicroBenchmark.measure(OPERATIONS, new MicroBenchmark("Mode.mapIntToValue") {
+			@Override
+			long run(int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					sum += Mode.mapIntToValue(modeInts[i & (SAMPLES - 1)]).ordinal();
+				}
+				return sum;
+			}
+		}, new MicroBenchmark("Mode mapping, values() per call") {
+			@Override
+			long run(int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					final int modeInt = modeInts[i & (SAMPLES - 1)];
+					Mode mode = Mode.getDefault();
+					for (Mode value : Mode.values()) {
+						if (modeInt == value.getIntValue()) {
+							mode = value;
+							break;
+						}
+					}
+					sum += mode.ordinal();
+				}
+				return sum;
+			}
+		}, new MicroBenchmark("State.mapIntToValue") {
+			@Override
+			long run(int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					sum += State.mapIntToValue(stateInts[i & (SAMPLES - 1)]).ordinal();
+				}
+				return sum;
+			}
+		}, new MicroBenchmark("State mapping, values() per call") {
+			@Override
+			long run(int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					final int stateInt = stateInts[i & (SAMPLES - 1)];
+					State state = State.RESET;
+					for (State value : State.values()) {
+						if (stateInt == value.getIntValue()) {
+							state = value;
+							break;
+						}
+					}
+					sum += state.ordinal();
+				}
+				return sum;
+			}
+		});
+	}
+}
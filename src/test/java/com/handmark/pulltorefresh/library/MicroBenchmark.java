@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library;
+
+/**
+ * A minimal plain JVM benchmark harness, so that the pure Java parts of the
+ * library can be measured without a device or any extra dependencies. Each
+ * case is warmed up, then timed over several rounds, and the fastest round is
+ * reported, which is the least disturbed by GC and the OS.
+ * <p/>
+ * Benchmarks are classes in the test source set with a main() method. Run them
+ * from the IDE, or with the unit test classpath, rather than as tests.
+ * {@link PullBenchmark} only uses Android-free classes, so it also runs on a
+ * plain JVM.
+ */
+abstract class MicroBenchmark {
+
+	private static final int WARMUP_ROUNDS = 10;
+	private static final int MEASURED_ROUNDS = 10;
+
+	/**
+	 * Written with every result, so that the JIT can't drop the work.
+	 */
+	static volatile long sSink;
+
+	private final String mName;
+
+	MicroBenchmark(String name) {
+		mName = name;
+	}
+
+	/**
+	 * Runs the operation being measured <var>operations</var> times.
+	 * 
+	 * @return A value which depends on every operation
+	 */
+	abstract long run(int operations);
+
+	/**
+	 * Prints the best time per operation of each benchmark, in nanoseconds.
+	 */
+	static void measure(int operations, MicroBenchmark... benchmarks) {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			for (MicroBenchmark benchmark : benchmarks) {
+				sSink += benchmark.run(operations);
+			}
+		}
+
+		for (MicroBenchmark benchmark : benchmarks) {
+			long best = Long.MAX_VALUE;
+			for (int i = 0; i < MEASURED_ROUNDS; i++) {
+				final long start = System.nanoTime();
+				sSink += benchmark.run(operations);
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			System.out.println(String.format("%-40s %8.2f ns/op", benchmark.mName, (double) best / operations));
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import com.handmark.pulltorefresh.library.RefreshStateMachine.Event;
+
+/**
+ * Measures the per-event and per-frame work which doesn't touch any Views:
+ * the {@link PullMath} used on every MOVE event, overscroll callback and
+ * animation frame, dispatching events through {@link RefreshStateMachine},
+ * and fanning a call out over the Loading Layouts the way
+ * {@link LoadingLayoutProxy} does.
+ * <p/>
+ * Only Android-free classes are used, so this runs on a plain JVM.
+ * LoadingLayout is a View, so the proxy is measured with stand-in layouts,
+ * looping over an array as the proxy does now, and over the HashSet it used
+ * to use.
+ */
+public final class PullBenchmark {
+
+	private static final int SAMPLES = 1 << 12;
+	private static final int OPERATIONS = 1 << 20;
+	private static final float FRICTION = 2f;
+	private static final int MAXIMUM_PULL_SCROLL = 640;
+	private static final int SCROLL_RANGE = 2000;
+	private static final int LAYOUT_COUNT = 4;
+
+	public static void main(String[] args) {
+		final Random random = new Random(42);
+		final float[] motionValues = new float[SAMPLES];
+		final int[] scrollValues = new int[SAMPLES];
+		final long[] elapsedNanos = new long[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			motionValues[i] = random.nextFloat() * 2000f;
+			scrollValues[i] = random.nextInt(SCROLL_RANGE + 400) - 200;
+			elapsedNanos[i] = random.nextInt(400) * 1000000L;
+		}
+
+		final RefreshStateMachine machine = new RefreshStateMachine(new RefreshStateMachine.Callbacks() {
+			@Override
+			public void onStateChanged(int previousState, int newState, boolean doScroll, boolean smoothScroll) {
+				MicroBenchmark.sSink += newState;
+			}
+
+			@Override
+			public void onReleasedWhileRefreshing() {
+			}
+
+			@Override
+			public void onDataChanged(int state) {
+			}
+		});
+
+		// Header and footer, plus a ListView's own header and footer
+		final Layout[] layoutArray = new Layout[LAYOUT_COUNT];
+		final HashSet<Layout> layoutSet = new HashSet<Layout>();
+		for (int i = 0; i < LAYOUT_COUNT; i++) {
+			layoutArray[i] = new Layout();
+			layoutSet.add(layoutArray[i]);
+		}
+		final CharSequence[] labels = { "Pull to refresh...", "Release to refresh...", "Loading..." };
+
+		MicroBenchmark.measure(OPERATIONS, new MicroBenchmark("PullMath pull scroll") {
+			@Override
+			long run(int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					final int scroll = PullMath.getPullScroll(1000f, motionValues[i & (SAMPLES - 1)], (i & 1) != 0,
+							FRICTION);
+					sum += PullMath.clampScroll(scroll, MAXIMUM_PULL_SCROLL);
+				}
+				return sum;
+			}
+		}, new MicroBenchmark("PullMath overscroll") {
+			@Override
+			long run(int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					final int newScrollValue = scrollValues[i & (SAMPLES - 1)];
+					final int edge = PullMath.getOverScrollEdge(newScrollValue, SCROLL_RANGE, 0);
+					if (edge == PullMath.OVERSCROLL_START || edge == PullMath.OVERSCROLL_END) {
+						sum += PullMath.getOverScroll(edge, 0, newScrollValue, SCROLL_RANGE, 1f);
+					} else {
+						sum += edge;
+					}
+				}
+				return sum;
+			}
+		}, new MicroBenchmark("PullMath animation frame") {
+			@Override
+			long run(int operations) {
+				long sum = 0;
+				for (int i = 0; i < operations; i++) {
+					final long normalizedTime = PullMath.getNormalizedTime(elapsedNanos[i & (SAMPLES - 1)],
+							300000000L);
+					sum += PullMath.getInterpolatedScroll(-200, 0, normalizedTime
+							/ (float) PullMath.NORMALIZED_TIME_MAX);
+				}
+				return sum;
+			}
+		}, new MicroBenchmark("RefreshStateMachine event dispatch") {
+			@Override
+			long run(int operations) {
+				// A full pull to refresh is four events
+				for (int i = 0; i < operations; i += 4) {
+					machine.post(Event.DRAG, 0);
+					machine.post(Event.DRAG, RefreshStateMachine.FLAG_PAST_THRESHOLD);
+					machine.post(Event.RELEASE, RefreshStateMachine.FLAG_REFRESH_ALLOWED);
+					machine.post(Event.COMPLETE);
+				}
+				return machine.getState();
+			}
+		}, new MicroBenchmark("LoadingLayoutProxy fan-out, array") {
+			@Override
+			long run(int operations) {
+				for (int i = 0; i < operations; i++) {
+					final CharSequence label = labels[i % labels.length];
+					for (int j = 0; j < LAYOUT_COUNT; j++) {
+						layoutArray[j].setPullLabel(label);
+					}
+				}
+				return layoutArray[0].mCount;
+			}
+		}, new MicroBenchmark("LoadingLayoutProxy fan-out, HashSet") {
+			@Override
+			long run(int operations) {
+				for (int i = 0; i < operations; i++) {
+					final CharSequence label = labels[i % labels.length];
+					for (Layout layout : layoutSet) {
+						layout.setPullLabel(label);
+					}
+				}
+				return layoutArray[0].mCount;
+			}
+		});
+	}
+
+	/**
+	 * Stands in for a LoadingLayout, doing a similar amount of work when a
+	 * label is set.
+	 */
+	static final class Layout {
+		CharSequence mPullLabel;
+		long mCount;
+
+		void setPullLabel(CharSequence label) {
+			if (label != mPullLabel) {
+				mPullLabel = label;
+				mCount++;
+			}
+		}
+	}
+}
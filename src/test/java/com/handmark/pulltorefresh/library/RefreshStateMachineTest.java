@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.handmark.pulltorefresh.library.RefreshStateMachine.STATE_COUNT;
+import static com.handmark.pulltorefresh.library.RefreshStateMachine.STATE_MANUAL_REFRESHING;
+import static com.handmark.pulltorefresh.library.RefreshStateMachine.STATE_OVERSCROLLING;
+import static com.handmark.pulltorefresh.library.RefreshStateMachine.STATE_PULL_TO_REFRESH;
+import static com.handmark.pulltorefresh.library.RefreshStateMachine.STATE_REFRESHING;
+import static com.handmark.pulltorefresh.library.RefreshStateMachine.STATE_RELEASE_TO_REFRESH;
+import static com.handmark.pulltorefresh.library.RefreshStateMachine.STATE_RESET;
+import static com.handmark.pulltorefresh.library.RefreshStateMachine.canTransition;
+
+import com.handmark.pulltorefresh.library.RefreshStateMachine.Event;
+
+public class RefreshStateMachineTest {
+
+	// Indexed by state code
+	private static final String[] STATE_NAMES = { "RESET", "PULL_TO_REFRESH", "RELEASE_TO_REFRESH", "REFRESHING",
+			"MANUAL_REFRESHING", "OVERSCROLLING" };
+
+	private final List<String> mCalls = new ArrayList<String>();
+	private RefreshStateMachine mMachine;
+
+	/**
+	 * Run from onStateChanged() before it returns, if set
+	 */
+	private Runnable mOnStateChanged;
+
+	@Before
+	public void setUp() {
+		mMachine = new RefreshStateMachine(new RefreshStateMachine.Callbacks() {
+			@Override
+			public void onStateChanged(int previousState, int newState, boolean doScroll, boolean smoothScroll) {
+				mCalls.add("enter " + STATE_NAMES[newState]);
+				if (null != mOnStateChanged) {
+					final Runnable runnable = mOnStateChanged;
+					mOnStateChanged = null;
+					runnable.run();
+				}
+				mCalls.add("exit " + STATE_NAMES[newState]);
+			}
+
+			@Override
+			public void onReleasedWhileRefreshing() {
+				mCalls.add("releasedWhileRefreshing");
+			}
+
+			@Override
+			public void onDataChanged(int state) {
+				mCalls.add("dataChanged " + STATE_NAMES[state]);
+			}
+		});
+	}
+
+	@Test
+	public void allowsPullGestureTransitions() {
+		assertTrue(canTransition(STATE_RESET, STATE_PULL_TO_REFRESH));
+		assertTrue(canTransition(STATE_PULL_TO_REFRESH, STATE_RELEASE_TO_REFRESH));
+		assertTrue(canTransition(STATE_RELEASE_TO_REFRESH, STATE_PULL_TO_REFRESH));
+		assertTrue(canTransition(STATE_RELEASE_TO_REFRESH, STATE_REFRESHING));
+		assertTrue(canTransition(STATE_REFRESHING, STATE_RESET));
+	}
+
+	@Test
+	public void allowsOverscrollTransitions() {
+		assertTrue(canTransition(STATE_RESET, STATE_OVERSCROLLING));
+		assertTrue(canTransition(STATE_OVERSCROLLING, STATE_OVERSCROLLING));
+		assertTrue(canTransition(STATE_OVERSCROLLING, STATE_REFRESHING));
+		assertTrue(canTransition(STATE_OVERSCROLLING, STATE_RESET));
+	}
+
+	@Test
+	public void rejectsSkippingThePull() {
+		assertFalse(canTransition(STATE_RESET, STATE_RELEASE_TO_REFRESH));
+		assertFalse(canTransition(STATE_RESET, STATE_REFRESHING));
+	}
+
+	@Test
+	public void refreshingStatesOnlyMoveToReset() {
+		for (int state = 0; state < STATE_COUNT; state++) {
+			assertEquals(state == STATE_RESET, canTransition(STATE_REFRESHING, state));
+			assertEquals(state == STATE_RESET, canTransition(STATE_MANUAL_REFRESHING, state));
+		}
+	}
+
+	@Test
+	public void pullPastThresholdAndReleaseRefreshes() {
+		mMachine.post(Event.DRAG, 0);
+		mMachine.post(Event.DRAG, RefreshStateMachine.FLAG_PAST_THRESHOLD);
+		mMachine.post(Event.RELEASE, RefreshStateMachine.FLAG_REFRESH_ALLOWED);
+
+		assertEquals(STATE_REFRESHING, mMachine.getState());
+		assertCalls("enter PULL_TO_REFRESH", "exit PULL_TO_REFRESH", "enter RELEASE_TO_REFRESH",
+				"exit RELEASE_TO_REFRESH", "enter REFRESHING", "exit REFRESHING");
+	}
+
+	@Test
+	public void releaseWithoutRefreshAllowedResets() {
+		mMachine.post(Event.DRAG, 0);
+		mMachine.post(Event.DRAG, RefreshStateMachine.FLAG_PAST_THRESHOLD);
+		mMachine.post(Event.RELEASE, 0);
+
+		assertEquals(STATE_RESET, mMachine.getState());
+	}
+
+	@Test
+	public void flingBeforeThresholdRefreshes() {
+		mMachine.post(Event.DRAG, 0);
+		mMachine.post(Event.RELEASE, RefreshStateMachine.FLAG_REFRESH_ALLOWED | RefreshStateMachine.FLAG_FLUNG);
+
+		assertEquals(STATE_REFRESHING, mMachine.getState());
+	}
+
+	@Test
+	public void illegalTransitionIsIgnored() {
+		mMachine.post(Event.TRANSITION, RefreshStateMachine.transitionArg(STATE_RELEASE_TO_REFRESH, true, true));
+
+		assertEquals(STATE_RESET, mMachine.getState());
+		assertCalls();
+	}
+
+	@Test
+	public void completeIsIgnoredUnlessRefreshing() {
+		mMachine.post(Event.COMPLETE);
+		assertCalls();
+
+		mMachine.post(Event.MANUAL_REFRESH, RefreshStateMachine.FLAG_DO_SCROLL);
+		mMachine.post(Event.COMPLETE);
+		assertEquals(STATE_RESET, mMachine.getState());
+	}
+
+	@Test
+	public void releaseWhileRefreshingIsReported() {
+		mMachine.post(Event.MANUAL_REFRESH, 0);
+		mCalls.clear();
+
+		mMachine.post(Event.RELEASE, RefreshStateMachine.FLAG_REFRESH_ALLOWED);
+
+		assertEquals(STATE_MANUAL_REFRESHING, mMachine.getState());
+		assertCalls("releasedWhileRefreshing");
+	}
+
+	@Test
+	public void overscrollRefreshPassesThroughOverscrolling() {
+		mMachine.post(Event.OVERSCROLL, RefreshStateMachine.OVERSCROLL_REFRESH);
+
+		assertEquals(STATE_REFRESHING, mMachine.getState());
+		assertCalls("enter OVERSCROLLING", "exit OVERSCROLLING", "enter REFRESHING", "exit REFRESHING");
+	}
+
+	@Test
+	public void eventPostedDuringDispatchRunsAfterIt() {
+		mOnStateChanged = new Runnable() {
+			@Override
+			public void run() {
+				mMachine.post(Event.DRAG, RefreshStateMachine.FLAG_PAST_THRESHOLD);
+				// Not handled yet
+				assertEquals(STATE_PULL_TO_REFRESH, mMachine.getState());
+			}
+		};
+
+		mMachine.post(Event.DRAG, 0);
+
+		assertEquals(STATE_RELEASE_TO_REFRESH, mMachine.getState());
+		assertCalls("enter PULL_TO_REFRESH", "exit PULL_TO_REFRESH", "enter RELEASE_TO_REFRESH",
+				"exit RELEASE_TO_REFRESH");
+	}
+
+	@Test
+	public void eventsPostedDuringDispatchKeepTheirOrder() {
+		mOnStateChanged = new Runnable() {
+			@Override
+			public void run() {
+				// More than the initial queue capacity, so that it has to grow
+				for (int i = 0; i < 40; i++) {
+					mMachine.post(Event.DATA_CHANGED);
+					mMachine.post(i % 2 == 0 ? Event.SCROLL_STARTED : Event.SCROLL_FINISHED);
+				}
+				mMachine.post(Event.COMPLETE);
+			}
+		};
+
+		mMachine.post(Event.MANUAL_REFRESH, 0);
+
+		// Data changes posted while scrolling are held back until it finishes
+		final List<String> expected = new ArrayList<String>();
+		expected.add("enter MANUAL_REFRESHING");
+		expected.add("exit MANUAL_REFRESHING");
+		for (int i = 0; i < 40; i += 2) {
+			expected.add("dataChanged MANUAL_REFRESHING");
+			expected.add("dataChanged MANUAL_REFRESHING");
+		}
+		expected.add("enter RESET");
+		expected.add("exit RESET");
+		assertEquals(expected, mCalls);
+	}
+
+	@Test
+	public void dataChangeWaitsForScrollToFinish() {
+		mMachine.post(Event.SCROLL_STARTED);
+		mMachine.post(Event.DATA_CHANGED);
+		mMachine.post(Event.DATA_CHANGED);
+		assertCalls();
+
+		mMachine.post(Event.SCROLL_FINISHED);
+		assertCalls("dataChanged RESET");
+	}
+
+	private void assertCalls(String... calls) {
+		assertEquals(Arrays.asList(calls), mCalls);
+	}
+}
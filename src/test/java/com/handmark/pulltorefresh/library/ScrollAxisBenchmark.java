@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2011, 2012 Chris Banes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.handmark.pulltorefresh.library;
+
+import java.util.Random;
+
+import com.handmark.pulltorefresh.library.PullToRefreshBase.Orientation;
+
+/**
+ * Compares the MOVE event maths done by switching on the scroll direction for
+ * every event, as PullToRefreshBase used to, with resolving a
+ * {@link ScrollAxis} once and calling it.
+ * <p/>
+ * Vertical and horizontal Views are measured together, as an app has both, so
+ * that neither version gets a monomorphic call site for free.
+ * <p/>
+ * ScrollAxis also moves Views, so unlike {@link PullBenchmark} this needs
+ * android.jar on the classpath. Run it with the unit test classpath.
+ */
+public final class ScrollAxisBenchmark {
+
+	private static final int EVENTS = 1 << 12;
+	private static final int OPERATIONS = 1 << 20;
+	private static final float TOUCH_SLOP = 8f;
+
+	public static void main(String[] args) {
+		final Random random = new Random(42);
+		final float[] xs = new float[EVENTS];
+		final float[] ys = new float[EVENTS];
+		for (int i = 0; i < EVENTS; i++) {
+			xs[i] = random.nextFloat() * 40f - 20f;
+			ys[i] = random.nextFloat() * 40f - 20f;
+		}
+
+		final DirectionSource[] sources = { new VerticalSource(), new HorizontalSource() };
+		final ScrollAxis[] axes = { ScrollAxis.forOrientation(Orientation.VERTICAL),
+				ScrollAxis.forOrientation(Orientation.HORIZONTAL) };
+
+		MicroBenchmark.measure(OPERATIONS, new MicroBenchmark("Orientation switch per event") {
+			@Override
+			long run(int operations) {
+				long dragged = 0;
+				for (int i = 0; i < operations; i++) {
+					final int event = i & (EVENTS - 1);
+					final float dx = xs[event], dy = ys[event];
+					final float diff, oppositeDiff;
+					switch (sources[i & 1].getPullToRefreshScrollDirection()) {
+						case HORIZONTAL:
+							diff = dx;
+							oppositeDiff = dy;
+							break;
+						case VERTICAL:
+						default:
+							diff = dy;
+							oppositeDiff = dx;
+							break;
+					}
+					final float absDiff = Math.abs(diff);
+					if (absDiff > TOUCH_SLOP && absDiff > Math.abs(oppositeDiff)) {
+						dragged++;
+					}
+				}
+				return dragged;
+			}
+		}, new MicroBenchmark("ScrollAxis resolved once") {
+			@Override
+			long run(int operations) {
+				long dragged = 0;
+				for (int i = 0; i < operations; i++) {
+					final int event = i & (EVENTS - 1);
+					final float dx = xs[event], dy = ys[event];
+					final ScrollAxis axis = axes[i & 1];
+					final float absDiff = Math.abs(axis.select(dx, dy));
+					if (absDiff > TOUCH_SLOP && absDiff > Math.abs(axis.selectOpposite(dx, dy))) {
+						dragged++;
+					}
+				}
+				return dragged;
+			}
+		});
+	}
+
+	/**
+	 * Stands in for the abstract
+	 * {@link PullToRefreshBase#getPullToRefreshScrollDirection()}.
+	 */
+	static abstract class DirectionSource {
+		abstract Orientation getPullToRefreshScrollDirection();
+	}
+
+	static final class VerticalSource extends DirectionSource {
+		@Override
+		Orientation getPullToRefreshScrollDirection() {
+			return Orientation.VERTICAL;
+		}
+	}
+
+	static final class HorizontalSource extends DirectionSource {
+		@Override
+		Orientation getPullToRefreshScrollDirection() {
+			return Orientation.HORIZONTAL;
+		}
+	}
+}